@@ -0,0 +1,66 @@
+package loadtest;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import javax.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the load test resources in the Jersey request pipeline of the calling thread, without any network.
+ * Responses are written completely, including the entity, but the bytes are discarded.
+ */
+class InMemoryContainer {
+    private static final URI BASE_URI = URI.create("http://localhost/");
+
+    private final ApplicationHandler handler;
+
+    InMemoryContainer() {
+        handler = new ApplicationHandler(new ResourceConfig(LoadResource.class, JsonNodeWriter.class));
+    }
+
+    /**
+     * Performs a GET request.
+     * @param path the request path relative to the base URI, including the query
+     * @return the number of entity bytes written
+     * @throws IllegalStateException if the response status is not 200
+     */
+    long get(String path) throws IOException {
+        ContainerRequest request = new ContainerRequest(BASE_URI, BASE_URI.resolve(path), "GET", null, new MapPropertiesDelegate());
+        request.header(HttpHeaders.ACCEPT, "application/vnd.api+json");
+        CountingOutputStream output = new CountingOutputStream();
+        ContainerResponse response;
+        try {
+            response = handler.apply(request, output).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + path, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Request " + path + " failed", e.getCause());
+        }
+        if(response.getStatus() != 200) {
+            throw new IllegalStateException("Request " + path + " failed with status " + response.getStatus());
+        }
+        return output.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package loadtest;
+
+import response.JsonApiResponse;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Locale;
+
+@Path("{shape}")
+public class LoadResource {
+    @Context
+    private UriInfo uriInfo;
+
+    @GET
+    @Produces(JsonApiResponse.JSONAPI_TYPE)
+    public Response get(@PathParam("shape") String shape, @QueryParam("size") @DefaultValue("1") int size) {
+        return Shape.valueOf(shape.toUpperCase(Locale.ROOT)).respond(uriInfo, size);
+    }
+}
@@ -0,0 +1,231 @@
+package loadtest;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the load test resources from a growing number of concurrent client threads
+ * and reports throughput, latency percentiles and garbage collection per run.
+ * <p>
+ * Options (all optional):
+ * <ul>
+ *     <li>--shapes flat,related,included: the resource shapes to request</li>
+ *     <li>--sizes 1,10,100: the collection sizes to request</li>
+ *     <li>--threads n: the highest number of client threads, defaults to the number of cores.
+ *     Runs start with one thread and double the threads up to n.</li>
+ *     <li>--duration s: the measured seconds per run</li>
+ *     <li>--warmup s: the seconds every shape and size is requested before it is measured</li>
+ * </ul>
+ */
+public class LoadTest {
+    private final InMemoryContainer container = new InMemoryContainer();
+    private final List<Shape> shapes = new ArrayList<>(Arrays.asList(Shape.values()));
+    private final List<Integer> sizes = new ArrayList<>(Arrays.asList(1, 10, 100));
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    private long durationNanos = TimeUnit.SECONDS.toNanos(10);
+    private long warmupNanos = TimeUnit.SECONDS.toNanos(5);
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        loadTest.configure(args);
+        loadTest.run();
+    }
+
+    private void configure(String[] args) {
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of option " + args[i]);
+            }
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--shapes":
+                    shapes.clear();
+                    for(String shape: value.split(",")) {
+                        shapes.add(Shape.valueOf(shape.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                case "--sizes":
+                    sizes.clear();
+                    for(String size: value.split(",")) {
+                        sizes.add(Integer.valueOf(size.trim()));
+                    }
+                    break;
+                case "--threads":
+                    maxThreads = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(value));
+                    break;
+                case "--warmup":
+                    warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        System.out.println(String.format(Locale.ROOT, "%-9s %6s %7s %12s %9s %9s %9s %9s %6s %8s",
+                "shape", "size", "threads", "requests/s", "p50 us", "p99 us", "p999 us", "bytes", "gcs", "gc ms"));
+        for(Shape shape: shapes) {
+            for(int size: sizes) {
+                String path = shape.name().toLowerCase(Locale.ROOT) + "?size=" + size;
+                measure(path, maxThreads, warmupNanos);
+                for(int threads: threadCounts()) {
+                    Result result = measure(path, threads, durationNanos);
+                    System.out.println(String.format(Locale.ROOT, "%-9s %6d %7d %12.0f %9.1f %9.1f %9.1f %9d %6d %8d",
+                            shape.name().toLowerCase(Locale.ROOT), size, threads, result.throughput(),
+                            result.percentile(0.5), result.percentile(0.99), result.percentile(0.999),
+                            result.bytesPerResponse(), result.gcCount, result.gcMillis));
+                }
+            }
+        }
+    }
+
+    private List<Integer> threadCounts() {
+        List<Integer> threadCounts = new ArrayList<>();
+        for(int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        return threadCounts;
+    }
+
+    private Result measure(String path, int threads, long nanos) throws InterruptedException {
+        Client[] clients = new Client[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for(int i = 0; i < threads; i++) {
+            clients[i] = new Client(path, start, done);
+            new Thread(clients[i], "load-client-" + i).start();
+        }
+
+        long[] gcBefore = gcTotals();
+        long begin = System.nanoTime();
+        for(Client client: clients) {
+            client.deadline = begin + nanos;
+        }
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        long[] gcAfter = gcTotals();
+
+        Result result = new Result(clients, elapsed, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        for(Client client: clients) {
+            if(client.failure != null) {
+                throw new IllegalStateException("Requesting " + path + " failed", client.failure);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of collections and the milliseconds spent collecting of all collectors so far
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for(GarbageCollectorMXBean collector: ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    /**
+     * A client thread sending requests until the deadline and recording the latency of each.
+     */
+    private class Client implements Runnable {
+        private final String path;
+        private final CountDownLatch start;
+        private final CountDownLatch done;
+        private volatile long deadline;
+        private long[] latencies = new long[1 << 16];
+        private int requests;
+        private long bytes;
+        private Exception failure;
+
+        private Client(String path, CountDownLatch start, CountDownLatch done) {
+            this.path = path;
+            this.start = start;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                long now = System.nanoTime();
+                while(now < deadline) {
+                    bytes += container.get(path);
+                    long end = System.nanoTime();
+                    if(requests == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, requests * 2);
+                    }
+                    latencies[requests++] = end - now;
+                    now = end;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    private static class Result {
+        private final long[] latencies;
+        private final long elapsedNanos;
+        private final long bytes;
+        private final long gcCount;
+        private final long gcMillis;
+
+        private Result(Client[] clients, long elapsedNanos, long gcCount, long gcMillis) {
+            int requests = 0;
+            long bytes = 0;
+            for(Client client: clients) {
+                requests += client.requests;
+                bytes += client.bytes;
+            }
+            latencies = new long[requests];
+            int offset = 0;
+            for(Client client: clients) {
+                System.arraycopy(client.latencies, 0, latencies, offset, client.requests);
+                offset += client.requests;
+            }
+            Arrays.sort(latencies);
+            this.elapsedNanos = elapsedNanos;
+            this.bytes = bytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        private double throughput() {
+            return latencies.length / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return the latency in microseconds below which the given fraction of requests completed
+         */
+        private double percentile(double fraction) {
+            if(latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(fraction * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e3;
+        }
+
+        private long bytesPerResponse() {
+            return latencies.length == 0? 0 : bytes / latencies.length;
+        }
+    }
+}
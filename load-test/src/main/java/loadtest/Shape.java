@@ -0,0 +1,76 @@
+package loadtest;
+
+import loadtest.model.Article;
+import loadtest.model.Comment;
+import loadtest.model.Person;
+import response.JsonApiResponse;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * The resource shapes the load test can request. Resources are created once per collection size,
+ * so requests measure serialization and not the creation of test data.
+ */
+enum Shape {
+    /** People with two attributes and no relationships. */
+    FLAT {
+        @Override
+        Response respond(UriInfo uriInfo, int size) {
+            return JsonApiResponse.getResponse(uriInfo).data(fixture("people", size, Shape::people)).build();
+        }
+    },
+    /** Articles with an author, comments and a static link, linkage only. */
+    RELATED {
+        @Override
+        Response respond(UriInfo uriInfo, int size) {
+            return JsonApiResponse.getResponse(uriInfo).data(fixture("articles", size, Shape::articles)).build();
+        }
+    },
+    /** Articles including their comments and all authors. */
+    INCLUDED {
+        @Override
+        Response respond(UriInfo uriInfo, int size) {
+            return JsonApiResponse.getResponse(uriInfo)
+                    .data(fixture("articles", size, Shape::articles))
+                    .include("author,comments.author")
+                    .build();
+        }
+    };
+
+    private static final int COMMENTS_PER_ARTICLE = 5;
+    private static final Map<String, List<?>> fixtures = new ConcurrentHashMap<>();
+
+    abstract Response respond(UriInfo uriInfo, int size);
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> fixture(String name, int size, IntFunction<List<T>> factory) {
+        return (List<T>) fixtures.computeIfAbsent(name + "/" + size, key -> factory.apply(size));
+    }
+
+    private static List<Person> people(int size) {
+        List<Person> people = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            people.add(new Person(i));
+        }
+        return people;
+    }
+
+    private static List<Article> articles(int size) {
+        List<Article> articles = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            List<Comment> comments = new ArrayList<>(COMMENTS_PER_ARTICLE);
+            for(int c = 0; c < COMMENTS_PER_ARTICLE; c++) {
+                comments.add(new Comment(i * COMMENTS_PER_ARTICLE + c, new Person(c)));
+            }
+            articles.add(new Article(new UUID(0, i), "Article " + i, new Person(i % 10), comments));
+        }
+        return articles;
+    }
+}
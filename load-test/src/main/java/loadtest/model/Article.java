@@ -0,0 +1,44 @@
+package loadtest.model;
+
+import annotations.JsonApiId;
+import annotations.JsonApiLink;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@JsonApiResource(type = "articles", location = "articles")
+public class Article {
+    @JsonApiId
+    private final UUID id;
+
+    public final String title;
+
+    public final int words;
+
+    private final Instant published;
+
+    @JsonApiLink(name = "feed", target = "articles/feed")
+    private Object feed;
+
+    @JsonApiRelationship
+    private final Person author;
+
+    @JsonApiRelationship
+    private final List<Comment> comments;
+
+    public Article(UUID id, String title, Person author, List<Comment> comments) {
+        this.id = id;
+        this.title = title;
+        this.words = title.length() * 100;
+        this.published = Instant.ofEpochSecond(1_500_000_000L);
+        this.author = author;
+        this.comments = comments;
+    }
+
+    public String getPublished() {
+        return published.toString();
+    }
+}
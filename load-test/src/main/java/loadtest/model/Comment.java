@@ -0,0 +1,22 @@
+package loadtest.model;
+
+import annotations.JsonApiId;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+
+@JsonApiResource(type = "comments", location = "comments")
+public class Comment {
+    @JsonApiId
+    private final long id;
+
+    public final String body;
+
+    @JsonApiRelationship
+    private final Person author;
+
+    public Comment(long id, Person author) {
+        this.id = id;
+        this.body = "Comment " + id;
+        this.author = author;
+    }
+}
@@ -0,0 +1,20 @@
+package loadtest.model;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+
+@JsonApiResource(type = "people", location = "people")
+public class Person {
+    @JsonApiId
+    private final long id;
+
+    public final String name;
+
+    public final String email;
+
+    public Person(long id) {
+        this.id = id;
+        this.name = "Person " + id;
+        this.email = "person" + id + "@example.org";
+    }
+}
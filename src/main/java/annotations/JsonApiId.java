@@ -7,7 +7,8 @@ import java.lang.annotation.Target;
 
 /**
  * Interface for marking the id of a JsonApiResource,
- * can either be applied to a (String) field or to a method returning a String.
+ * can either be applied to a field or to a no-arg method.
+ * Supported id types are String, long, int, UUID and every type with a registered {@link util.IdCodec}.
  * Should only be applied once per class.
  */
 @Retention(RetentionPolicy.RUNTIME)
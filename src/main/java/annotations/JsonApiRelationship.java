@@ -10,4 +10,11 @@ import java.lang.annotation.Target;
 public @interface JsonApiRelationship {
     String name() default "";
     String location() default "";
+
+    /**
+     * Maximum number of resource identifiers written as data of a to-many relationship.
+     * Larger relationships are truncated to the first page and get related and next links and their total count as meta.
+     * A negative value uses the page size of the response, if any.
+     */
+    int pageSize() default -1;
 }
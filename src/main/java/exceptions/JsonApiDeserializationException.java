@@ -0,0 +1,14 @@
+package exceptions;
+
+/**
+ * Thrown if an incoming jsonAPI document is malformed or does not match the resource class it is read as.
+ */
+public class JsonApiDeserializationException extends RuntimeException {
+    public JsonApiDeserializationException(String s) {
+        super(s);
+    }
+
+    public JsonApiDeserializationException(String s, Throwable cause) {
+        super(s, cause);
+    }
+}
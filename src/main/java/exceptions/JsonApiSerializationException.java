@@ -4,4 +4,8 @@ public class JsonApiSerializationException extends RuntimeException {
     public JsonApiSerializationException(String s) {
         super(s);
     }
+
+    public JsonApiSerializationException(String s, Throwable cause) {
+        super(s, cause);
+    }
 }
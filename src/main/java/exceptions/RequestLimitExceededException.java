@@ -0,0 +1,11 @@
+package exceptions;
+
+/**
+ * Thrown as soon as an incoming jsonAPI document exceeds one of the configured request limits,
+ * before the rest of the document is read.
+ */
+public class RequestLimitExceededException extends JsonApiDeserializationException {
+    public RequestLimitExceededException(String s) {
+        super(s);
+    }
+}
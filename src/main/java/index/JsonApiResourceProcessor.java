@@ -0,0 +1,111 @@
+package index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor that writes the names of all @JsonApiResource annotated classes of a compilation
+ * to {@value ResourceIndex#INDEX_LOCATION}, so they can be found at runtime without classpath scanning.
+ * Classes are only indexed if their annotations are valid, otherwise a warning is reported and the class is left to
+ * the runtime validation. It is registered as service and runs automatically when this library is on the annotation
+ * processor path, so it must not break builds that compiled before. Invalid classes are reported as errors
+ * with the option {@code -A}{@value #STRICT_OPTION}{@code =true}.
+ */
+@SupportedAnnotationTypes("annotations.JsonApiResource")
+@SupportedOptions(JsonApiResourceProcessor.STRICT_OPTION)
+public class JsonApiResourceProcessor extends AbstractProcessor {
+    public static final String STRICT_OPTION = "jsonapi.strict";
+
+    private static final String JSON_API_ID = "annotations.JsonApiId";
+
+    private final Set<String> resourceClasses = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if(roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for(TypeElement annotation: annotations) {
+            for(Element element: roundEnv.getElementsAnnotatedWith(annotation)) {
+                if(element.getKind() == ElementKind.CLASS && verify((TypeElement) element)) {
+                    resourceClasses.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies the annotations of a resource class at build time, so indexed classes can be trusted at runtime.
+     * Whether a codec exists for custom id types can only be checked at runtime.
+     */
+    private boolean verify(TypeElement resourceClass) {
+        for(Element member: resourceClass.getEnclosedElements()) {
+            if(!isAnnotatedWithJsonApiId(member)) {
+                continue;
+            }
+            if(member.getKind() == ElementKind.FIELD) {
+                return true;
+            }
+            if(member.getKind() == ElementKind.METHOD
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && ((ExecutableElement) member).getReturnType().getKind() != TypeKind.VOID) {
+                return true;
+            }
+        }
+        boolean strict = Boolean.parseBoolean(processingEnv.getOptions().get(STRICT_OPTION));
+        processingEnv.getMessager().printMessage(strict? Diagnostic.Kind.ERROR : Diagnostic.Kind.WARNING,
+                "At least one field or no-arg non-void method needs to be annotated with JsonApiId annotation", resourceClass);
+        return false;
+    }
+
+    private static boolean isAnnotatedWithJsonApiId(Element element) {
+        for(AnnotationMirror annotation: element.getAnnotationMirrors()) {
+            if(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(JSON_API_ID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        if(resourceClasses.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ResourceIndex.INDEX_LOCATION);
+            try(Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for(String resourceClass: resourceClasses) {
+                    writer.write(resourceClass);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Writing jsonAPI resource index failed: " + e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.JsonApiSerializationException;
+import util.Assert;
+import util.ResourceMetadata;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runtime access to the index of jsonAPI resource classes written at build time by {@link JsonApiResourceProcessor}.
+ */
+public class ResourceIndex {
+    public static final String INDEX_LOCATION = "META-INF/jsonapi/resources";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private ResourceIndex() {
+    }
+
+    /**
+     * Get all indexed jsonAPI resource classes visible to the context class loader.
+     * @return the indexed classes, without initializing them
+     */
+    public static List<Class<?>> load() {
+        return load(classLoader());
+    }
+
+    /**
+     * Get all indexed jsonAPI resource classes visible to a class loader.
+     * All index files on the classpath are read, so resources of multiple jars are found.
+     * @param classLoader the class loader used for finding index files and loading classes
+     * @return the indexed classes, without initializing them
+     */
+    public static List<Class<?>> load(ClassLoader classLoader) {
+        List<Class<?>> resourceClasses = new ArrayList<>();
+        for(String className: readClassNames(classLoader)) {
+            try {
+                resourceClasses.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                throw new JsonApiSerializationException("Indexed jsonAPI resource " + className + " cannot be loaded", e);
+            }
+        }
+        return Collections.unmodifiableList(resourceClasses);
+    }
+
+    /**
+     * Prepares all indexed resource classes for serialization, so the first request does not pay for it.
+     * Each class is initialized, validated and its metadata is resolved, so the validation result is cached as well.
+     * Classes with a no-arg constructor are serialized once as well, which creates the jackson serializers.
+     * @return the warmed up resource classes
+     * @throws JsonApiSerializationException if an indexed class has invalid annotations
+     */
+    public static List<Class<?>> warmUp() {
+        return warmUp(1);
+    }
+
+    /**
+     * Same as {@link #warmUp()}, but serializes every instantiable resource class multiple times,
+     * e.g. to let the JIT compile the serialization path before the first request.
+     * @param iterations how often each instantiable resource class is serialized
+     * @return the warmed up resource classes
+     */
+    public static List<Class<?>> warmUp(int iterations) {
+        ClassLoader classLoader = classLoader();
+        List<Class<?>> resourceClasses = new ArrayList<>();
+        for(Class<?> resourceClass: load(classLoader)) {
+            try {
+                //initialize the class, so static initializers (e.g. IdCodec registrations) run
+                resourceClasses.add(Class.forName(resourceClass.getName(), true, classLoader));
+            } catch (ClassNotFoundException e) {
+                throw new JsonApiSerializationException("Indexed jsonAPI resource " + resourceClass.getName() + " cannot be loaded", e);
+            }
+        }
+        for(Class<?> resourceClass: resourceClasses) {
+            Assert.assertHasValidJsonApiAnnotations(resourceClass);
+            ResourceMetadata.of(resourceClass);
+        }
+        for(Class<?> resourceClass: resourceClasses) {
+            exercise(resourceClass, iterations);
+        }
+        return Collections.unmodifiableList(resourceClasses);
+    }
+
+    /**
+     * Enables the trusted types mode: all indexed classes are considered valid jsonAPI resources without runtime validation,
+     * since their annotations were already verified by {@link JsonApiResourceProcessor} at build time.
+     * Classes that are not part of the index are still validated at first use.
+     * @return the trusted resource classes
+     */
+    public static List<Class<?>> trustIndexedTypes() {
+        List<Class<?>> resourceClasses = load();
+        for(Class<?> resourceClass: resourceClasses) {
+            Assert.trust(resourceClass);
+        }
+        return resourceClasses;
+    }
+
+    private static void exercise(Class<?> resourceClass, int iterations) {
+        Object instance;
+        try {
+            Constructor<?> constructor = resourceClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            instance = constructor.newInstance();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return; //not instantiable without arguments, metadata is prepared anyway
+        }
+        try {
+            for(int i = 0; i < iterations; i++) {
+                mapper.writeValue(DiscardingOutputStream.INSTANCE, instance);
+            }
+        } catch (IOException | RuntimeException e) {
+            //default instances may not be serializable (e.g. because of missing values), which is fine for warming up
+        }
+    }
+
+    private static Set<String> readClassNames(ClassLoader classLoader) {
+        Set<String> classNames = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexFiles = classLoader.getResources(INDEX_LOCATION);
+            while(indexFiles.hasMoreElements()) {
+                URL indexFile = indexFiles.nextElement();
+                try(BufferedReader reader = new BufferedReader(new InputStreamReader(indexFile.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if(!line.isEmpty() && !line.startsWith("#")) {
+                            classNames.add(line);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new JsonApiSerializationException("Reading jsonAPI resource index failed", e);
+        }
+        return classNames;
+    }
+
+    private static ClassLoader classLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return (classLoader != null)? classLoader : ResourceIndex.class.getClassLoader();
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        private static final DiscardingOutputStream INSTANCE = new DiscardingOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package request;
+
+import java.util.Locale;
+
+/**
+ * An operation of a jsonAPI Atomic Operations request.
+ * Operations on resources hold the bound resource as data, operations on relationships hold a {@link util.ResourceIdentifier},
+ * a list of resource identifiers or null. Identifiers of resources added by earlier operations may only have a local id,
+ * see {@link util.ResourceIdentifier#getLid()}.
+ */
+public final class AtomicOperation {
+
+    public enum Op {
+        ADD, UPDATE, REMOVE;
+
+        static Op of(String op) {
+            switch(op) {
+                case "add":
+                    return ADD;
+                case "update":
+                    return UPDATE;
+                case "remove":
+                    return REMOVE;
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Op op;
+    private final String type;
+    private final String id;
+    private final String lid;
+    private final String relationship;
+    private final String href;
+    private final Object data;
+
+    AtomicOperation(Op op, String type, String id, String lid, String relationship, String href, Object data) {
+        this.op = op;
+        this.type = type;
+        this.id = id;
+        this.lid = lid;
+        this.relationship = relationship;
+        this.href = href;
+        this.data = data;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    /**
+     * @return the type of the targeted resource, taken from the ref or the data of the operation
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the id of the targeted resource, or null if the resource is added without id or only has a local id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the local id of the targeted resource, or null
+     */
+    public String getLid() {
+        return lid;
+    }
+
+    /**
+     * @return the name of the targeted relationship, or null if the operation targets a resource
+     */
+    public String getRelationship() {
+        return relationship;
+    }
+
+    public boolean isRelationshipOperation() {
+        return relationship != null;
+    }
+
+    /**
+     * @return the href of the operation, or null
+     */
+    public String getHref() {
+        return href;
+    }
+
+    /**
+     * @return the bound resource, resource linkage for relationship operations, or null for removed resources
+     */
+    public Object getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return op + " " + type + "/" + ((id != null)? id : lid) + ((relationship != null)? "/" + relationship : "");
+    }
+}
@@ -0,0 +1,344 @@
+package request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import exceptions.JsonApiDeserializationException;
+import exceptions.RequestLimitExceededException;
+import util.RequestLimits;
+import util.ResourceIdentifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reads requests of the jsonAPI Atomic Operations extension, whose atomic:operations array holds operations
+ * on the registered resource classes.
+ * Operations are parsed as a stream and handed over one by one, using the cached binding plans of the resource classes,
+ * so a batch of operations costs about as much as reading a collection of the same size.
+ * The {@link RequestLimits} apply to the whole document, the resource limit to the number of operations.
+ * <p>
+ * Results are written with {@link response.JsonApiAtomicResponse}.
+ */
+public final class AtomicOperations {
+    public static final String EXTENSION = "https://jsonapi.org/ext/atomic";
+
+    private final Map<String, BindingPlan> plans = new HashMap<>();
+
+    private AtomicOperations(Collection<Class<?>> resourceClasses) {
+        for(Class<?> resourceClass: resourceClasses) {
+            BindingPlan plan = BindingPlan.of(resourceClass);
+            plans.put(plan.getMetadata().getType(), plan);
+        }
+    }
+
+    /**
+     * @param resourceClasses the resource classes operations may add or update, e.g. {@link index.ResourceIndex#load()}
+     */
+    public static AtomicOperations of(Collection<Class<?>> resourceClasses) {
+        return new AtomicOperations(resourceClasses);
+    }
+
+    public static AtomicOperations of(Class<?>... resourceClasses) {
+        return new AtomicOperations(Arrays.asList(resourceClasses));
+    }
+
+    /**
+     * Reads all operations of a request, using the default limits.
+     * @param body the request body
+     * @return the operations in document order
+     * @throws JsonApiDeserializationException if the document is malformed or an operation is invalid
+     * @throws RequestLimitExceededException if the document exceeds the default limits
+     * @throws IOException if reading the body fails
+     */
+    public List<AtomicOperation> read(InputStream body) throws IOException {
+        return process(body, RequestLimits.defaults(), Function.identity());
+    }
+
+    /**
+     * Reads the operations of a request and passes each one to the handler as soon as it is read, using the default limits.
+     * If the handler throws, no further operations are read.
+     * @param body the request body
+     * @param handler performs an operation and returns its result, i.e. the added or updated resource,
+     *                or null if the operation has no result data
+     * @return the results of all operations in document order, to be written with {@link response.JsonApiAtomicResponse}
+     * @throws JsonApiDeserializationException if the document is malformed or an operation is invalid
+     * @throws RequestLimitExceededException if the document exceeds the default limits
+     * @throws IOException if reading the body fails
+     */
+    public <R> List<R> process(InputStream body, Function<AtomicOperation, R> handler) throws IOException {
+        return process(body, RequestLimits.defaults(), handler);
+    }
+
+    /**
+     * Same as {@link #process(InputStream, Function)}, with custom limits.
+     */
+    public <R> List<R> process(InputStream body, RequestLimits limits, Function<AtomicOperation, R> handler) throws IOException {
+        List<R> results = new ArrayList<>();
+        try(JsonParser parser = JsonApiRequest.createParser(body, limits)) {
+            if(!toOperations(parser)) {
+                throw new JsonApiDeserializationException("Document needs an atomic:operations member");
+            }
+            BindingPlan.expect(parser, JsonToken.START_ARRAY, "atomic:operations");
+            while(parser.nextToken() != JsonToken.END_ARRAY) {
+                if(results.size() == limits.getMaxResources()) {
+                    throw new RequestLimitExceededException("Request document exceeds the limit of " + limits.getMaxResources() + " operations");
+                }
+                results.add(handler.apply(readOperation(parser)));
+            }
+            return results;
+        } catch (JsonProcessingException e) {
+            throw new JsonApiDeserializationException("Malformed jsonAPI document", e);
+        }
+    }
+
+    private static boolean toOperations(JsonParser parser) throws IOException {
+        parser.nextToken();
+        BindingPlan.expect(parser, JsonToken.START_OBJECT, "document");
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            if(member.equals("atomic:operations")) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private AtomicOperation readOperation(JsonParser parser) throws IOException {
+        BindingPlan.expect(parser, JsonToken.START_OBJECT, "operation");
+        String opName = null;
+        Ref ref = null;
+        String href = null;
+        boolean hasData = false;
+        Object data = null;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            switch(member) {
+                case "op":
+                    opName = BindingPlan.text(parser, "op");
+                    break;
+                case "ref":
+                    ref = readRef(parser);
+                    break;
+                case "href":
+                    href = BindingPlan.text(parser, "href");
+                    break;
+                case "data":
+                    hasData = true;
+                    data = readData(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        AtomicOperation.Op op = (opName != null)? AtomicOperation.Op.of(opName) : null;
+        if(op == null) {
+            throw new JsonApiDeserializationException("Operation needs an op of add, update or remove, but was " + opName);
+        }
+        if(ref != null && ref.relationship != null) {
+            return relationshipOperation(op, ref, href, hasData, data);
+        }
+        return resourceOperation(op, ref, href, data);
+    }
+
+    private AtomicOperation resourceOperation(AtomicOperation.Op op, Ref ref, String href, Object data) {
+        if(op == AtomicOperation.Op.REMOVE) {
+            if(ref == null || ref.type == null || (ref.id == null && ref.lid == null)) {
+                throw new JsonApiDeserializationException("Remove operation needs a ref with a type and an id or lid");
+            }
+            return new AtomicOperation(op, ref.type, ref.id, ref.lid, null, href, null);
+        }
+        if(!(data instanceof ResourceData)) {
+            throw new JsonApiDeserializationException("The " + op + " operation needs a resource object as data");
+        }
+        ResourceData resource = (ResourceData) data;
+        if(resource.plan == null) {
+            throw new JsonApiDeserializationException("No resource class registered for type " + resource.type);
+        }
+        String id = resource.id;
+        String lid = resource.lid;
+        if(ref != null) {
+            if(ref.type != null && !ref.type.equals(resource.type)) {
+                throw new JsonApiDeserializationException("Operation refers to type " + ref.type + ", but its data has type " + resource.type);
+            }
+            id = (id != null)? id : ref.id;
+            lid = (lid != null)? lid : ref.lid;
+        }
+        if(op == AtomicOperation.Op.UPDATE && id == null && lid == null) {
+            throw new JsonApiDeserializationException("Update operation needs the id or lid of the resource");
+        }
+        return new AtomicOperation(op, resource.type, id, lid, null, href, resource.resource);
+    }
+
+    private static AtomicOperation relationshipOperation(AtomicOperation.Op op, Ref ref, String href, boolean hasData, Object data) {
+        if(!hasData) {
+            throw new JsonApiDeserializationException("Operation on relationship " + ref.relationship + " needs data");
+        }
+        if(op != AtomicOperation.Op.UPDATE && !(data instanceof List)) {
+            throw new JsonApiDeserializationException("The " + op + " operation on relationship " + ref.relationship
+                    + " needs an array of resource identifiers");
+        }
+        if(ref.type == null || (ref.id == null && ref.lid == null)) {
+            throw new JsonApiDeserializationException("Operation on relationship " + ref.relationship + " needs a ref with a type and an id or lid");
+        }
+        Object linkage = data;
+        if(data instanceof ResourceData) {
+            linkage = ((ResourceData) data).toIdentifier();
+        }
+        return new AtomicOperation(op, ref.type, ref.id, ref.lid, ref.relationship, href, linkage);
+    }
+
+    private static Ref readRef(JsonParser parser) throws IOException {
+        BindingPlan.expect(parser, JsonToken.START_OBJECT, "ref");
+        Ref ref = new Ref();
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            switch(member) {
+                case "type":
+                    ref.type = BindingPlan.text(parser, "type");
+                    break;
+                case "id":
+                    ref.id = BindingPlan.text(parser, "id");
+                    break;
+                case "lid":
+                    ref.lid = BindingPlan.text(parser, "lid");
+                    break;
+                case "relationship":
+                    ref.relationship = BindingPlan.text(parser, "relationship");
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return ref;
+    }
+
+    /**
+     * Reads the data of an operation: null, an array of resource identifiers, or a resource object.
+     * Resource identifiers are resource objects without attributes and relationships, so single objects are read
+     * as resource objects and converted to identifiers for relationship operations.
+     */
+    private Object readData(JsonParser parser) throws IOException {
+        if(parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if(parser.currentToken() == JsonToken.START_ARRAY) {
+            List<ResourceIdentifier> identifiers = new ArrayList<>();
+            while(parser.nextToken() != JsonToken.END_ARRAY) {
+                identifiers.add(BindingPlan.readIdentifier(parser));
+            }
+            return Collections.unmodifiableList(identifiers);
+        }
+        return readResourceData(parser);
+    }
+
+    /**
+     * Reads a resource object whose class is only known once its type is read.
+     * Members before the type are buffered and bound as soon as the type is known, all later members are bound directly.
+     */
+    private ResourceData readResourceData(JsonParser parser) throws IOException {
+        BindingPlan.expect(parser, JsonToken.START_OBJECT, "data");
+        ResourceData data = new ResourceData();
+        TokenBuffer pending = null;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            if(member.equals("type")) {
+                data.setType(BindingPlan.text(parser, "type"), plans);
+                if(pending != null) {
+                    pending.writeEndObject();
+                    readPendingMembers(pending, data);
+                    pending = null;
+                }
+            } else if(data.type == null) {
+                if(pending == null) {
+                    pending = new TokenBuffer(parser);
+                    pending.writeStartObject();
+                }
+                pending.writeFieldName(member);
+                pending.copyCurrentStructure(parser);
+            } else {
+                data.readMember(parser, member);
+            }
+        }
+        if(data.type == null) {
+            throw new JsonApiDeserializationException("Resource object needs a type");
+        }
+        return data;
+    }
+
+    private static void readPendingMembers(TokenBuffer pending, ResourceData data) throws IOException {
+        try(JsonParser parser = pending.asParser()) {
+            parser.nextToken();
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String member = parser.getCurrentName();
+                parser.nextToken();
+                data.readMember(parser, member);
+            }
+        }
+    }
+
+    private static final class Ref {
+        private String type;
+        private String id;
+        private String lid;
+        private String relationship;
+    }
+
+    /**
+     * A resource object of an operation, bound to its resource class if one is registered for its type.
+     */
+    private static final class ResourceData {
+        private String type;
+        private String id;
+        private String lid;
+        private BindingPlan plan;
+        private Object resource;
+
+        private void setType(String type, Map<String, BindingPlan> plans) {
+            this.type = type;
+            this.plan = plans.get(type);
+            if(plan != null) {
+                resource = plan.getMetadata().newInstance();
+            }
+        }
+
+        private void readMember(JsonParser parser, String member) throws IOException {
+            if(member.equals("id")) {
+                id = BindingPlan.text(parser, "id");
+            } else if(member.equals("lid")) {
+                lid = BindingPlan.text(parser, "lid");
+                return;
+            }
+            if(plan != null) {
+                plan.readMember(parser, resource, member);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        private ResourceIdentifier toIdentifier() {
+            if(id != null) {
+                return ResourceIdentifier.of(type, id);
+            }
+            if(lid == null) {
+                throw new JsonApiDeserializationException("Resource identifier needs a type and an id or lid");
+            }
+            return ResourceIdentifier.ofLid(type, lid);
+        }
+    }
+}
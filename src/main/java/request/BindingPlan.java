@@ -0,0 +1,305 @@
+package request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import exceptions.JsonApiDeserializationException;
+import exceptions.RequestLimitExceededException;
+import util.ResourceIdentifier;
+import util.ResourceMetadata;
+import util.ResourceMetadata.Attribute;
+import util.ResourceMetadata.Relationship;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static util.Assert.assertHasValidJsonApiAnnotations;
+
+/**
+ * Binds incoming resource objects to instances of a jsonAPI resource class, reading directly from the parser.
+ * Members are looked up by their name in the plan, which holds a jackson reader for every writable attribute
+ * and the target type of every relationship.
+ */
+final class BindingPlan {
+    //exceptions of the limiting parser should not be wrapped while jackson binds attribute values
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .disable(DeserializationFeature.WRAP_EXCEPTIONS)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private final ResourceMetadata metadata;
+    private final Map<String, AttributeBinding> attributes = new HashMap<>();
+    private final Map<String, RelationshipBinding> relationships = new HashMap<>();
+
+    private BindingPlan(ResourceMetadata metadata) {
+        this.metadata = metadata;
+        for(Attribute attribute: metadata.getAttributes()) {
+            if(attribute.isWritable()) {
+                attributes.put(attribute.getName(),
+                        new AttributeBinding(attribute, mapper.readerFor(mapper.constructType(attribute.getGenericType()))));
+            }
+        }
+        for(Relationship relationship: metadata.getRelationships()) {
+            relationships.put(relationship.getName(), new RelationshipBinding(relationship));
+        }
+    }
+
+    /**
+     * @return the binding plan of the resource class, kept with its {@link ResourceMetadata}
+     * @throws exceptions.JsonApiSerializationException if the class is no valid jsonAPI resource
+     */
+    static BindingPlan of(Class<?> resourceClass) {
+        assertHasValidJsonApiAnnotations(resourceClass);
+        return ResourceMetadata.of(resourceClass).derive(BindingPlan.class, BindingPlan::new);
+    }
+
+    static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    ResourceMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Reads a resource object. Unknown or read-only attributes and relationships are skipped, as well as links and meta.
+     * @param parser the parser, positioned at the start of the resource object
+     * @return the bound resource
+     */
+    Object read(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "resource object");
+        Object resource = metadata.newInstance();
+        boolean typed = false;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            if(member.equals("type")) {
+                String type = text(parser, "type");
+                if(!metadata.getType().equals(type)) {
+                    throw new JsonApiDeserializationException("Expected a resource of type " + metadata.getType() + ", but was " + type);
+                }
+                typed = true;
+            } else {
+                readMember(parser, resource, member);
+            }
+        }
+        if(!typed) {
+            throw new JsonApiDeserializationException("Resource object needs a type");
+        }
+        return resource;
+    }
+
+    /**
+     * Binds a member of a resource object other than its type.
+     * @param parser the parser, positioned at the value of the member
+     * @param resource the resource to bind to
+     * @param member the name of the member
+     */
+    void readMember(JsonParser parser, Object resource, String member) throws IOException {
+        try {
+            switch(member) {
+                case "id":
+                    metadata.setId(resource, parseId(metadata, text(parser, "id")));
+                    break;
+                case "attributes":
+                    readAttributes(parser, resource);
+                    break;
+                case "relationships":
+                    readRelationships(parser, resource);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
+            throw new JsonApiDeserializationException("Binding a resource of type " + metadata.getType() + " failed", e);
+        }
+    }
+
+    private void readAttributes(JsonParser parser, Object resource) throws IOException, IllegalAccessException, InvocationTargetException {
+        expect(parser, JsonToken.START_OBJECT, "attributes");
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            AttributeBinding binding = attributes.get(parser.getCurrentName());
+            parser.nextToken();
+            if(binding == null) {
+                parser.skipChildren();
+                continue;
+            }
+            Object value;
+            try {
+                value = binding.reader.readValue(parser);
+            } catch (JsonProcessingException e) {
+                //some jackson deserializers wrap all exceptions, exceeded limits are reported as they are
+                for(Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                    if(cause instanceof RequestLimitExceededException) {
+                        throw (RequestLimitExceededException) cause;
+                    }
+                }
+                throw new JsonApiDeserializationException("Invalid value of attribute " + binding.attribute.getName(), e);
+            }
+            binding.attribute.set(resource, value);
+        }
+    }
+
+    private void readRelationships(JsonParser parser, Object resource) throws IOException, IllegalAccessException {
+        expect(parser, JsonToken.START_OBJECT, "relationships");
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            RelationshipBinding binding = relationships.get(parser.getCurrentName());
+            parser.nextToken();
+            if(binding == null) {
+                parser.skipChildren();
+                continue;
+            }
+            expect(parser, JsonToken.START_OBJECT, "relationship " + binding.relationship.getName());
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String member = parser.getCurrentName();
+                parser.nextToken();
+                if(member.equals("data")) {
+                    binding.relationship.set(resource, binding.read(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a resource identifier object.
+     * @return the type and id of the identifier, or its type and local id if it has no id
+     */
+    static ResourceIdentifier readIdentifier(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "resource identifier");
+        String type = null;
+        String id = null;
+        String lid = null;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            if(member.equals("type")) {
+                type = text(parser, "type");
+            } else if(member.equals("id")) {
+                id = text(parser, "id");
+            } else if(member.equals("lid")) {
+                lid = text(parser, "lid");
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if(type == null || (id == null && lid == null)) {
+            throw new JsonApiDeserializationException("Resource identifier needs a type and an id or lid");
+        }
+        return (id != null)? ResourceIdentifier.of(type, id) : ResourceIdentifier.ofLid(type, lid);
+    }
+
+    static void expect(JsonParser parser, JsonToken token, String member) {
+        if(parser.currentToken() != token) {
+            throw new JsonApiDeserializationException("Expected " + token.asString() + " at the start of " + member
+                    + ", but was " + parser.currentToken());
+        }
+    }
+
+    static String text(JsonParser parser, String member) throws IOException {
+        if(parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new JsonApiDeserializationException("Member " + member + " needs to be a string");
+        }
+        return parser.getText();
+    }
+
+    private static Object parseId(ResourceMetadata metadata, String id) {
+        try {
+            return metadata.parseId(id);
+        } catch (RuntimeException e) {
+            throw new JsonApiDeserializationException("Invalid id " + id + " of type " + metadata.getType(), e);
+        }
+    }
+
+    private static final class AttributeBinding {
+        private final Attribute attribute;
+        private final ObjectReader reader;
+
+        private AttributeBinding(Attribute attribute, ObjectReader reader) {
+            this.attribute = attribute;
+            this.reader = reader;
+        }
+    }
+
+    /**
+     * Converts resource linkage to the type of a relationship field: resource identifiers for fields of type Object
+     * or ResourceIdentifier, otherwise instances of the related resource class that only have their id set.
+     * Identifiers with a local id can only be bound to resource identifiers.
+     * To-many relationships are bound to lists, or sets for fields of a Set type.
+     */
+    private static final class RelationshipBinding {
+        private final Relationship relationship;
+        private final boolean toMany;
+        private final boolean set;
+        private final Class<?> target;
+
+        private RelationshipBinding(Relationship relationship) {
+            this.relationship = relationship;
+            Type type = relationship.getGenericType();
+            Class<?> rawType = rawClass(type);
+            this.toMany = Collection.class.isAssignableFrom(rawType);
+            this.set = Set.class.isAssignableFrom(rawType);
+            this.target = (toMany && type instanceof ParameterizedType)?
+                    rawClass(((ParameterizedType) type).getActualTypeArguments()[0]) : (toMany? Object.class : rawType);
+        }
+
+        private Object read(JsonParser parser) throws IOException {
+            if(parser.currentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if(!toMany) {
+                return bind(readIdentifier(parser));
+            }
+            expect(parser, JsonToken.START_ARRAY, "to-many relationship " + relationship.getName());
+            Collection<Object> related = set? new LinkedHashSet<>() : new ArrayList<>();
+            while(parser.nextToken() != JsonToken.END_ARRAY) {
+                related.add(bind(readIdentifier(parser)));
+            }
+            return related;
+        }
+
+        private Object bind(ResourceIdentifier identifier) {
+            if(target.isAssignableFrom(ResourceIdentifier.class)) {
+                return identifier;
+            }
+            ResourceMetadata related = ResourceMetadata.of(target);
+            if(!related.getType().equals(identifier.getType())) {
+                throw new JsonApiDeserializationException("Relationship " + relationship.getName() + " expects resources of type "
+                        + related.getType() + ", but was " + identifier.getType());
+            }
+            if(identifier.isLocal()) {
+                //the resource has no id yet, which the related instance could hold
+                throw new JsonApiDeserializationException("Relationship " + relationship.getName() + " refers to local id "
+                        + identifier.getLid() + ", which needs a relationship field of type ResourceIdentifier");
+            }
+            Object resource = related.newInstance();
+            try {
+                related.setId(resource, parseId(related, identifier.getId()));
+            } catch (IllegalAccessException e) {
+                throw new JsonApiDeserializationException("Binding relationship " + relationship.getName() + " failed", e);
+            }
+            return resource;
+        }
+
+        private static Class<?> rawClass(Type type) {
+            if(type instanceof Class) {
+                return (Class<?>) type;
+            }
+            if(type instanceof ParameterizedType) {
+                return rawClass(((ParameterizedType) type).getRawType());
+            }
+            return Object.class; //wildcards and type variables
+        }
+    }
+}
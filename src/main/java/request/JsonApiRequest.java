@@ -0,0 +1,187 @@
+package request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import exceptions.JsonApiDeserializationException;
+import exceptions.RequestLimitExceededException;
+import util.RequestLimits;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads incoming jsonAPI documents into instances of @JsonApiResource annotated classes.
+ * Documents are parsed as a stream and bound while they are read, nothing is buffered as tree.
+ * The {@link RequestLimits} are enforced token by token, so oversized documents are rejected as soon as they exceed a limit.
+ * Resource classes need a no-arg constructor. Attributes are bound to fields or to getters with a public setter,
+ * relationships to resource identifiers or to instances of the related class that only have their id set.
+ */
+public class JsonApiRequest {
+
+    private JsonApiRequest() {
+    }
+
+    /**
+     * Reads a document whose primary data is a single resource object, using the default limits.
+     * @param body the request body
+     * @param resourceClass the class to bind the resource object to
+     * @return the bound resource, or null if the primary data is null
+     * @throws JsonApiDeserializationException if the document is malformed or does not match the resource class
+     * @throws RequestLimitExceededException if the document exceeds the default limits
+     * @throws IOException if reading the body fails
+     */
+    public static <T> T readResource(InputStream body, Class<T> resourceClass) throws IOException {
+        return readResource(body, resourceClass, RequestLimits.defaults());
+    }
+
+    /**
+     * Same as {@link #readResource(InputStream, Class)}, with custom limits.
+     */
+    public static <T> T readResource(InputStream body, Class<T> resourceClass, RequestLimits limits) throws IOException {
+        BindingPlan plan = BindingPlan.of(resourceClass);
+        try(JsonParser parser = createParser(body, limits)) {
+            if(!toPrimaryData(parser)) {
+                return null;
+            }
+            if(parser.currentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            return resourceClass.cast(plan.read(parser));
+        } catch (JsonProcessingException e) {
+            throw new JsonApiDeserializationException("Malformed jsonAPI document", e);
+        }
+    }
+
+    /**
+     * Reads a document whose primary data is an array of resource objects, using the default limits.
+     * @param body the request body
+     * @param resourceClass the class to bind the resource objects to
+     * @return the bound resources, in document order
+     * @throws JsonApiDeserializationException if the document is malformed or does not match the resource class
+     * @throws RequestLimitExceededException if the document exceeds the default limits
+     * @throws IOException if reading the body fails
+     */
+    public static <T> List<T> readResources(InputStream body, Class<T> resourceClass) throws IOException {
+        return readResources(body, resourceClass, RequestLimits.defaults());
+    }
+
+    /**
+     * Same as {@link #readResources(InputStream, Class)}, with custom limits.
+     */
+    public static <T> List<T> readResources(InputStream body, Class<T> resourceClass, RequestLimits limits) throws IOException {
+        List<T> resources = new ArrayList<>();
+        forEachResource(body, resourceClass, limits, resources::add);
+        return resources;
+    }
+
+    /**
+     * Reads a document whose primary data is an array of resource objects, passing every resource to a consumer as soon as
+     * it is bound. Only the resource being read is held in memory, so documents of any size can be read
+     * if the limits allow for them, e.g. with {@code new RequestLimits(Long.MAX_VALUE, Integer.MAX_VALUE, 32, 64 * 1024)}.
+     * Resources read before a malformed part of the document or an exceeded limit have already been consumed.
+     * @param body the request body
+     * @param resourceClass the class to bind the resource objects to
+     * @param limits the limits of the document
+     * @param consumer receives the bound resources, in document order
+     * @return the number of resources read
+     * @throws JsonApiDeserializationException if the document is malformed or does not match the resource class
+     * @throws RequestLimitExceededException if the document exceeds the limits
+     * @throws IOException if reading the body fails
+     */
+    public static <T> int forEachResource(InputStream body, Class<T> resourceClass, RequestLimits limits, Consumer<? super T> consumer) throws IOException {
+        BindingPlan plan = BindingPlan.of(resourceClass);
+        int count = 0;
+        try(JsonParser parser = createParser(body, limits)) {
+            if(!toPrimaryData(parser)) {
+                return count;
+            }
+            BindingPlan.expect(parser, JsonToken.START_ARRAY, "primary data");
+            while(parser.nextToken() != JsonToken.END_ARRAY) {
+                if(count == limits.getMaxResources()) {
+                    throw new RequestLimitExceededException("Request document exceeds the limit of " + limits.getMaxResources() + " resources");
+                }
+                consumer.accept(resourceClass.cast(plan.read(parser)));
+                count++;
+            }
+            return count;
+        } catch (JsonProcessingException e) {
+            throw new JsonApiDeserializationException("Malformed jsonAPI document", e);
+        }
+    }
+
+    /**
+     * Same as {@link #forEachResource(InputStream, Class, RequestLimits, Consumer)}, passing the resources in batches,
+     * e.g. to persist them with one statement per batch while the rest of the document is still read.
+     * @param batchSize the number of resources per batch, only the last batch may be smaller
+     * @param consumer receives the batches, which are not used by the reader afterwards
+     * @return the number of resources read
+     */
+    public static <T> int forEachBatch(InputStream body, Class<T> resourceClass, RequestLimits limits, int batchSize,
+                                       Consumer<? super List<T>> consumer) throws IOException {
+        if(batchSize < 1) {
+            throw new IllegalArgumentException("Batches need to hold at least one resource, but batch size was " + batchSize);
+        }
+        Batches<T> batches = new Batches<>(batchSize, consumer);
+        int count = forEachResource(body, resourceClass, limits, batches);
+        batches.flush();
+        return count;
+    }
+
+    static JsonParser createParser(InputStream body, RequestLimits limits) throws IOException {
+        JsonParser parser = BindingPlan.mapper().getFactory().createParser(new LimitedInputStream(body, limits.getMaxDocumentBytes()));
+        return new LimitingParser(parser, limits);
+    }
+
+    /**
+     * Advances to the value of the data member of the document. Other top level members are skipped.
+     * @return false if the document has no data member
+     */
+    private static boolean toPrimaryData(JsonParser parser) throws IOException {
+        parser.nextToken();
+        BindingPlan.expect(parser, JsonToken.START_OBJECT, "document");
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.getCurrentName();
+            parser.nextToken();
+            if(member.equals("data")) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Collects resources into batches and passes every full batch on.
+     */
+    private static final class Batches<T> implements Consumer<T> {
+        private final int batchSize;
+        private final Consumer<? super List<T>> consumer;
+        private List<T> batch;
+
+        private Batches(int batchSize, Consumer<? super List<T>> consumer) {
+            this.batchSize = batchSize;
+            this.consumer = consumer;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void accept(T resource) {
+            batch.add(resource);
+            if(batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if(!batch.isEmpty()) {
+                List<T> full = batch;
+                batch = new ArrayList<>(batchSize);
+                consumer.accept(full);
+            }
+        }
+    }
+}
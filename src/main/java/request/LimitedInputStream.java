@@ -0,0 +1,60 @@
+package request;
+
+import exceptions.RequestLimitExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a request body and fails as soon as the document exceeds its size limit.
+ */
+class LimitedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private long count;
+
+    LimitedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if(b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        //never read more than one byte beyond the limit, without overflowing for unlimited documents
+        long allowed = maxBytes - count;
+        int read = super.read(b, off, (allowed < len)? (int) allowed + 1 : len);
+        if(read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long allowed = maxBytes - count;
+        long skipped = super.skip((allowed < n)? allowed + 1 : n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long bytes) {
+        count += bytes;
+        if(count > maxBytes) {
+            throw new RequestLimitExceededException("Request document exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+}
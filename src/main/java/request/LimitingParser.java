@@ -0,0 +1,115 @@
+package request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import exceptions.RequestLimitExceededException;
+import util.RequestLimits;
+
+import java.io.IOException;
+
+/**
+ * Checks the nesting depth and string lengths of a request document token by token.
+ * All methods advancing the parser go through {@link #nextToken()}, so values bound by jackson are checked as well.
+ * Jackson reads a string completely before its token is returned, so an overlong string is only rejected after it
+ * was buffered. The memory a single string can take is therefore bounded by the document size limit, not the string limit.
+ */
+class LimitingParser extends JsonParserDelegate {
+    private final RequestLimits limits;
+    private int depth;
+
+    LimitingParser(JsonParser parser, RequestLimits limits) {
+        super(parser);
+        this.limits = limits;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException {
+        JsonToken token = delegate.nextToken();
+        if(token == null) {
+            return null;
+        }
+        switch(token) {
+            case START_OBJECT:
+            case START_ARRAY:
+                if(++depth > limits.getMaxDepth()) {
+                    throw new RequestLimitExceededException("Request document exceeds the nesting limit of " + limits.getMaxDepth());
+                }
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                break;
+            case FIELD_NAME:
+            case VALUE_STRING:
+                if(delegate.getTextLength() > limits.getMaxStringLength()) {
+                    throw new RequestLimitExceededException("Request document contains a string exceeding the limit of "
+                            + limits.getMaxStringLength() + " characters");
+                }
+                break;
+            default:
+                break;
+        }
+        return token;
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException {
+        JsonToken token = nextToken();
+        return (token == JsonToken.FIELD_NAME)? nextToken() : token;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException {
+        if(currentToken() == JsonToken.START_OBJECT || currentToken() == JsonToken.START_ARRAY) {
+            int open = 1;
+            while(open > 0) {
+                JsonToken token = nextToken();
+                if(token == null) {
+                    return this;
+                }
+                if(token.isStructStart()) {
+                    open++;
+                } else if(token.isStructEnd()) {
+                    open--;
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public String nextFieldName() throws IOException {
+        return (nextToken() == JsonToken.FIELD_NAME)? getCurrentName() : null;
+    }
+
+    @Override
+    public boolean nextFieldName(SerializableString str) throws IOException {
+        return nextToken() == JsonToken.FIELD_NAME && str.getValue().equals(getCurrentName());
+    }
+
+    @Override
+    public String nextTextValue() throws IOException {
+        return (nextToken() == JsonToken.VALUE_STRING)? getText() : null;
+    }
+
+    @Override
+    public int nextIntValue(int defaultValue) throws IOException {
+        return (nextToken() == JsonToken.VALUE_NUMBER_INT)? getIntValue() : defaultValue;
+    }
+
+    @Override
+    public long nextLongValue(long defaultValue) throws IOException {
+        return (nextToken() == JsonToken.VALUE_NUMBER_INT)? getLongValue() : defaultValue;
+    }
+
+    @Override
+    public Boolean nextBooleanValue() throws IOException {
+        JsonToken token = nextToken();
+        if(token == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        }
+        return (token == JsonToken.VALUE_FALSE)? Boolean.FALSE : null;
+    }
+}
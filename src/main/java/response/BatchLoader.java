@@ -0,0 +1,97 @@
+package response;
+
+import exceptions.JsonApiSerializationException;
+import util.ResourceIdentifier;
+import util.SerializationEvents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves resource identifiers of one response with the registered {@link RelationshipLoader}s.
+ * Identifiers are grouped by type, so every loader is called once per batch, and loaders of different types run
+ * concurrently on the configured executor. Loaded resources are remembered, so no id is loaded twice per response.
+ */
+class BatchLoader {
+    private final Map<String, RelationshipLoader<?>> loaders = new HashMap<>();
+    private final Map<ResourceIdentifier, Object> loaded = new HashMap<>();
+    private Executor executor = Runnable::run;
+
+    void register(RelationshipLoader<?> loader) {
+        loaders.put(loader.type(), loader);
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Replaces all resource identifiers by the loaded resources. Identifiers that could not be loaded are dropped,
+     * as are identifiers with a local id, which refer to resources the server has not created.
+     * @param resources resource objects and resource identifiers
+     * @return the resource objects
+     */
+    List<Object> resolve(List<Object> resources) {
+        Map<String, Set<String>> idsByType = new LinkedHashMap<>();
+        for(Object resource: resources) {
+            if(resource instanceof ResourceIdentifier && !((ResourceIdentifier) resource).isLocal() && !loaded.containsKey(resource)) {
+                ResourceIdentifier identifier = (ResourceIdentifier) resource;
+                idsByType.computeIfAbsent(identifier.getType(), type -> new LinkedHashSet<>()).add(identifier.getId());
+            }
+        }
+        if(!idsByType.isEmpty()) {
+            load(idsByType);
+        }
+
+        List<Object> resolved = new ArrayList<>(resources.size());
+        for(Object resource: resources) {
+            Object loadedResource = (resource instanceof ResourceIdentifier)? loaded.get(resource) : resource;
+            if(loadedResource != null) {
+                resolved.add(loadedResource);
+            }
+        }
+        return resolved;
+    }
+
+    private void load(Map<String, Set<String>> idsByType) {
+        Map<String, CompletableFuture<? extends Map<String, ?>>> results = new LinkedHashMap<>();
+        for(Map.Entry<String, Set<String>> ids: idsByType.entrySet()) {
+            RelationshipLoader<?> loader = loaders.get(ids.getKey());
+            if(loader == null) {
+                throw new JsonApiSerializationException("No RelationshipLoader registered for type " + ids.getKey()
+                        + ", related resources of that type cannot be included");
+            }
+            results.put(ids.getKey(), CompletableFuture.supplyAsync(() -> {
+                Object event = SerializationEvents.get().begin(SerializationEvents.Kind.RESOURCE_BATCH);
+                try {
+                    return loader.load(ids.getValue());
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    SerializationEvents.get().end(event, ids.getKey(), ids.getValue().size(), -1);
+                }
+            }, executor));
+        }
+
+        for(Map.Entry<String, CompletableFuture<? extends Map<String, ?>>> result: results.entrySet()) {
+            Map<String, ?> resources;
+            try {
+                resources = result.getValue().join();
+            } catch (CompletionException e) {
+                throw new JsonApiSerializationException("Loading resources of type " + result.getKey() + " failed", e.getCause());
+            }
+            for(String id: idsByType.get(result.getKey())) {
+                //ids the loader did not return are remembered as missing, so they are not requested again
+                loaded.put(ResourceIdentifier.of(result.getKey(), id), (resources != null)? resources.get(id) : null);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package response;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a response body while it is written. Compressed bytes are passed on as soon as the deflater emits them,
+ * so the client receives the start of the document while the rest is still serialized.
+ * <p>
+ * The level follows the size of the body: the first {@link #MIN_COMPRESSED_BYTES} are held back, bodies ending before
+ * are written as they are, without Content-Encoding. Larger bodies are compressed with the default level,
+ * bodies exceeding {@link #FAST_LEVEL_BYTES} continue with the fastest level, since compressing them costs more time
+ * than their better ratio saves. Deflaters and buffers are pooled, so responses do not allocate them.
+ */
+final class CompressingOutputStream extends OutputStream {
+    static final int MIN_COMPRESSED_BYTES = 1024;
+    static final long FAST_LEVEL_BYTES = 1024 * 1024;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final Encoding encoding;
+    //response headers, which can still be changed until the first byte is written to the output
+    private final MultivaluedMap<String, Object> headers;
+    private Compressor compressor;
+    private final CRC32 crc;
+    private int heldBack;
+    private long total;
+    private boolean compressing;
+    private boolean finished;
+
+    CompressingOutputStream(OutputStream out, Encoding encoding, MultivaluedMap<String, Object> headers) {
+        this.out = out;
+        this.encoding = encoding;
+        this.headers = headers;
+        this.compressor = encoding.acquire();
+        this.crc = (encoding == Encoding.GZIP)? new CRC32() : null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if(finished) {
+            throw new IOException("The compressed body is already finished");
+        }
+        byte[] single = compressor.single;
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if(finished) {
+            throw new IOException("The compressed body is already finished");
+        }
+        if(!compressing) {
+            if(heldBack + len <= MIN_COMPRESSED_BYTES) {
+                System.arraycopy(b, off, compressor.head, heldBack, len);
+                heldBack += len;
+                return;
+            }
+            startCompression();
+        }
+        compress(b, off, len);
+    }
+
+    /**
+     * Passes all compressed bytes written so far on. Bytes held back are kept until it is clear whether the body
+     * is compressed, writers flushing after every document must not force the compression of tiny bodies.
+     */
+    @Override
+    public void flush() throws IOException {
+        if(finished || !compressing) {
+            return;
+        }
+        Deflater deflater = compressor.deflater;
+        byte[] buffer = compressor.buffer;
+        int length;
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, length);
+        } while(length == buffer.length);
+        out.flush();
+    }
+
+    /**
+     * Writes the rest of the body and releases the deflater. The underlying output stays open.
+     */
+    void finish() throws IOException {
+        if(finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if(!compressing) {
+                out.write(compressor.head, 0, heldBack);
+                return;
+            }
+            Deflater deflater = compressor.deflater;
+            deflater.finish();
+            while(!deflater.finished()) {
+                drain();
+            }
+            if(crc != null) {
+                writeIntLE((int) crc.getValue());
+                writeIntLE((int) total);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Returns the deflater to its pool without writing anything, e.g. after writing the body failed.
+     */
+    void release() {
+        if(compressor != null) {
+            encoding.release(compressor);
+            compressor = null;
+            finished = true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void startCompression() throws IOException {
+        compressing = true;
+        headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+        headers.remove("Content-Length");
+        if(crc != null) {
+            out.write(GZIP_HEADER);
+        }
+        compress(compressor.head, 0, heldBack);
+    }
+
+    private void compress(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return;
+        }
+        if(crc != null) {
+            crc.update(b, off, len);
+        }
+        Deflater deflater = compressor.deflater;
+        if(total <= FAST_LEVEL_BYTES && total + len > FAST_LEVEL_BYTES) {
+            //takes effect with the next input
+            deflater.setLevel(Deflater.BEST_SPEED);
+        }
+        total += len;
+        deflater.setInput(b, off, len);
+        while(!deflater.needsInput()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        byte[] buffer = compressor.buffer;
+        int length = compressor.deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+        if(length > 0) {
+            out.write(buffer, 0, length);
+        }
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        byte[] buffer = compressor.buffer;
+        buffer[0] = (byte) value;
+        buffer[1] = (byte) (value >> 8);
+        buffer[2] = (byte) (value >> 16);
+        buffer[3] = (byte) (value >> 24);
+        out.write(buffer, 0, 4);
+    }
+
+    /**
+     * The supported content codings, each with a pool of idle deflaters.
+     */
+    enum Encoding {
+        GZIP("gzip", true),
+        DEFLATE("deflate", false);
+
+        private static final int MAX_IDLE = 64;
+
+        private final String token;
+        //gzip wraps raw deflate data in its own header and trailer, deflate uses the zlib format
+        private final boolean raw;
+        private final Queue<Compressor> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        Encoding(String token, boolean raw) {
+            this.token = token;
+            this.raw = raw;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        private Compressor acquire() {
+            Compressor compressor = idle.poll();
+            if(compressor == null) {
+                return new Compressor(new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+            }
+            idleCount.decrementAndGet();
+            return compressor;
+        }
+
+        private void release(Compressor compressor) {
+            compressor.deflater.reset();
+            compressor.deflater.setLevel(Deflater.DEFAULT_COMPRESSION);
+            if(idleCount.incrementAndGet() <= MAX_IDLE) {
+                idle.offer(compressor);
+            } else {
+                idleCount.decrementAndGet();
+                //frees the native memory of the deflater right away
+                compressor.deflater.end();
+            }
+        }
+    }
+
+    private static final class Compressor {
+        private final Deflater deflater;
+        private final byte[] buffer = new byte[8 * 1024];
+        private final byte[] head = new byte[MIN_COMPRESSED_BYTES];
+        private final byte[] single = new byte[1];
+
+        private Compressor(Deflater deflater) {
+            this.deflater = deflater;
+        }
+    }
+}
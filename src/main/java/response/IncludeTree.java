@@ -0,0 +1,67 @@
+package response;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tree of relationship names parsed from a jsonAPI include parameter, e.g. "comments.author,tags".
+ * Every node stands for one relationship, its children for the relationships of the related resources.
+ */
+public final class IncludeTree {
+    private final Map<String, IncludeTree> children = new LinkedHashMap<>();
+
+    /**
+     * Parses an include parameter.
+     * @param includeParameter comma separated list of dotted relationship paths, may be null or empty
+     * @return the include tree
+     * @throws IllegalArgumentException if a path contains an empty relationship name
+     */
+    public static IncludeTree parse(String includeParameter) {
+        IncludeTree tree = new IncludeTree();
+        tree.add(includeParameter);
+        return tree;
+    }
+
+    /**
+     * Adds the paths of an include parameter to this tree. Common prefixes of paths share their nodes.
+     * @param includeParameter comma separated list of dotted relationship paths, may be null or empty
+     */
+    public void add(String includeParameter) {
+        if(includeParameter == null || includeParameter.trim().isEmpty()) {
+            return;
+        }
+        for(String path: includeParameter.split(",")) {
+            IncludeTree node = this;
+            for(String name: path.split("\\.", -1)) {
+                name = name.trim();
+                if(name.isEmpty()) {
+                    throw new IllegalArgumentException("Include path '" + path + "' contains an empty relationship name");
+                }
+                node = node.children.computeIfAbsent(name, n -> new IncludeTree());
+            }
+        }
+    }
+
+    /**
+     * @return the included relationships by name, with the trees of their nested includes
+     */
+    public Map<String, IncludeTree> getChildren() {
+        return Collections.unmodifiableMap(children);
+    }
+
+    public boolean isEmpty() {
+        return children.isEmpty();
+    }
+
+    /**
+     * @return the length of the longest path in this tree
+     */
+    public int depth() {
+        int depth = 0;
+        for(IncludeTree child: children.values()) {
+            depth = Math.max(depth, child.depth() + 1);
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,78 @@
+package response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import request.AtomicOperations;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.util.ArrayList;
+import java.util.List;
+
+import static util.Assert.assertHasValidJsonApiAnnotations;
+
+/**
+ * Responses of the jsonAPI Atomic Operations extension, holding the results of all operations of a request
+ * in the atomic:results array. Results are serialized one by one while the response is written.
+ */
+public class JsonApiAtomicResponse {
+    public static final String ATOMIC_TYPE = JsonApiResponse.JSONAPI_TYPE + ";ext=\"" + AtomicOperations.EXTENSION + "\"";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonApiAtomicResponse() {
+    }
+
+    /**
+     * Creates the response to an atomic operations request.
+     * If no operation has a result, the response has no content.
+     * @param uriInfo the uri info of the request, used to resolve links
+     * @param results the result of every operation in the order of the operations, i.e. the added or updated resource,
+     *                or null for operations without result data
+     * @return the response
+     */
+    public static Response getResponse(UriInfo uriInfo, List<?> results) {
+        boolean hasData = false;
+        for(Object result: results) {
+            if(result != null) {
+                assertHasValidJsonApiAnnotations(result.getClass());
+                hasData = true;
+            }
+        }
+        if(!hasData) {
+            return Response.status(Response.Status.NO_CONTENT).build();
+        }
+        List<Object> copy = new ArrayList<>(results);
+        StreamingOutput output = stream -> {
+            try(JsonGenerator gen = mapper.getFactory().createGenerator(stream)) {
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("atomic:results");
+                for(Object result: copy) {
+                    if(result == null) {
+                        gen.writeStartObject();
+                        gen.writeEndObject();
+                    } else {
+                        gen.writeTree(toResultNode(uriInfo, result));
+                    }
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+        };
+        return Response
+                .status(Response.Status.OK)
+                .type(ATOMIC_TYPE)
+                .entity(output)
+                .build();
+    }
+
+    private static ObjectNode toResultNode(UriInfo uriInfo, Object result) {
+        ObjectNode resultNode = mapper.valueToTree(result);
+        ObjectNode resourceNode = (ObjectNode) resultNode.get("data");
+        JsonApiResponse.createResourceSelfLink(uriInfo, resourceNode);
+        JsonApiResponse.updateLinks(uriInfo, resourceNode);
+        return resultNode;
+    }
+}
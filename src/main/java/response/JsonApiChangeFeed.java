@@ -0,0 +1,376 @@
+package response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import exceptions.JsonApiSerializationException;
+import util.ResourceMetadata;
+
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static util.Assert.assertHasValidJsonApiAnnotations;
+
+/**
+ * A feed of changed resources, sent to all subscribers as server-sent events.
+ * Every event is named after the type of the resource and holds a jsonAPI document with the resource as primary data.
+ * <p>
+ * Each change is serialized once by the writer of the feed, which stays warm between events.
+ * The encoded event is queued for every subscriber and written to its output by the executor of the feed,
+ * so publishers never wait for clients. A subscriber with more than {@link #MAX_QUEUED_EVENTS} unwritten events
+ * is too slow to keep up and is unsubscribed.
+ * Changes of the same resource, i.e. the same type and id, published within the coalescing window are sent
+ * as a single event holding the latest version.
+ */
+public class JsonApiChangeFeed implements Closeable {
+    public static final String EVENT_STREAM_TYPE = "text/event-stream";
+    public static final int MAX_QUEUED_EVENTS = 256;
+
+    private static final byte[] EVENT = "event: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATA = "\ndata: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final URI baseUri;
+    private final long window;
+    private final TimeUnit unit;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectWriter writer = mapper.writer();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    //changes waiting for the end of the coalescing window, by type and id
+    private Map<String, Object> pending = new LinkedHashMap<>();
+    //guarded by the feed, reused for every event
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+
+    /**
+     * Creates a feed sending every change as soon as it is published.
+     * @param uriInfo the uri info of the feed endpoint, used to resolve the links of all resources
+     * @param executor writes the events to the subscribers. It is not shut down by the feed.
+     */
+    public JsonApiChangeFeed(UriInfo uriInfo, Executor executor) {
+        this(uriInfo, 0, TimeUnit.MILLISECONDS, null, executor);
+    }
+
+    /**
+     * Creates a feed coalescing changes of the same resource.
+     * @param uriInfo the uri info of the feed endpoint, used to resolve the links of all resources
+     * @param window how long changes are collected before they are sent, 0 to send every change immediately
+     * @param unit the unit of the window
+     * @param scheduler sends the collected changes at the end of each window and writes the events to the subscribers.
+     *                  It is not shut down by the feed.
+     */
+    public JsonApiChangeFeed(UriInfo uriInfo, long window, TimeUnit unit, ScheduledExecutorService scheduler) {
+        this(uriInfo, window, unit, scheduler, scheduler);
+    }
+
+    private JsonApiChangeFeed(UriInfo uriInfo, long window, TimeUnit unit, ScheduledExecutorService scheduler, Executor executor) {
+        if(window < 0) {
+            throw new IllegalArgumentException("The coalescing window cannot be negative, but was " + window);
+        }
+        if(window > 0 && scheduler == null) {
+            throw new IllegalArgumentException("Coalescing changes needs a scheduler");
+        }
+        if(executor == null) {
+            throw new IllegalArgumentException("Writing events needs an executor");
+        }
+        this.baseUri = uriInfo.getAbsolutePath().resolve("/");
+        this.window = window;
+        this.unit = unit;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes an open output, e.g. the async output stream of the container, which receives all following events.
+     * The output is closed by the feed once the subscription ends, i.e. it is closed, the output fails,
+     * the subscriber falls too far behind or the feed is closed.
+     * @param output the output of the subscriber
+     * @return the subscription, closing it unsubscribes the output
+     */
+    public Subscription subscribe(OutputStream output) {
+        Subscription subscription = new Subscription(output);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Publishes the current version of a changed resource.
+     * @param resource the changed jsonAPI resource
+     */
+    public void publish(Object resource) {
+        assertHasValidJsonApiAnnotations(resource);
+        if(window == 0) {
+            send(resource);
+            return;
+        }
+        String key = ResourceMetadata.of(resource.getClass()).getType() + "/" + idString(resource);
+        boolean schedule;
+        synchronized(this) {
+            schedule = pending.isEmpty();
+            //an existing key keeps its position, so coalesced changes are sent in the order they were first published
+            pending.put(key, resource);
+        }
+        if(schedule) {
+            scheduler.schedule(this::flush, window, unit);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Closes all subscriptions. Pending changes are dropped.
+     */
+    @Override
+    public void close() {
+        synchronized(this) {
+            pending = new LinkedHashMap<>();
+        }
+        for(Subscription subscription: subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private void flush() {
+        Map<String, Object> changes;
+        synchronized(this) {
+            changes = pending;
+            pending = new LinkedHashMap<>();
+        }
+        for(Object resource: changes.values()) {
+            send(resource);
+        }
+    }
+
+    /**
+     * Encodes a change and queues it for all subscribers. Nothing is written here, so the lock of the feed
+     * only keeps the order of the events the same for all subscribers.
+     */
+    private synchronized void send(Object resource) {
+        if(subscriptions.isEmpty()) {
+            return;
+        }
+        byte[] event = encode(resource);
+        for(Subscription subscription: subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private byte[] encode(Object resource) {
+        ResourceMetadata metadata = ResourceMetadata.of(resource.getClass());
+        String selfLink = baseUri.resolve(idString(resource)).toString();
+
+        buffer.reset();
+        try {
+            buffer.write(EVENT);
+            buffer.write(metadata.getType().getBytes(StandardCharsets.UTF_8));
+            buffer.write(DATA);
+            //jackson escapes line breaks in strings and does not indent, so the document fits into one data line
+            try(JsonGenerator gen = new LinkResolvingGenerator(mapper.getFactory().createGenerator(buffer), baseUri, selfLink)) {
+                writer.writeValue(gen, resource);
+            }
+            buffer.write(END);
+        } catch (IOException e) {
+            throw new JsonApiSerializationException("Serializing the change of " + resource.getClass() + " failed", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String idString(Object resource) {
+        try {
+            return ResourceMetadata.of(resource.getClass()).getIdString(resource);
+        } catch (ReflectiveOperationException e) {
+            throw new JsonApiSerializationException("Reading the id of " + resource.getClass() + " failed", e);
+        }
+    }
+
+    /**
+     * The subscription of an output to the feed. Its events are queued and written by one task of the executor at a time.
+     */
+    public final class Subscription implements Closeable {
+        private final OutputStream output;
+        private final BlockingQueue<byte[]> events = new ArrayBlockingQueue<>(MAX_QUEUED_EVENTS);
+        //set while a task writing the queued events is submitted or running
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean open = true;
+        //only accessed by the writing task
+        private boolean outputClosed;
+
+        private Subscription(OutputStream output) {
+            this.output = output;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Unsubscribes the output. It is closed by the executor, after the event being written, if any.
+         */
+        @Override
+        public void close() {
+            open = false;
+            subscriptions.remove(this);
+            drain();
+        }
+
+        private void offer(byte[] event) {
+            if(!open) {
+                return;
+            }
+            if(!events.offer(event)) {
+                //the client does not keep up, it can reconnect once it is able to
+                close();
+                return;
+            }
+            drain();
+        }
+
+        private void drain() {
+            if(!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::write);
+            } catch (RejectedExecutionException e) {
+                open = false;
+                subscriptions.remove(this);
+                events.clear();
+                draining.set(false);
+            }
+        }
+
+        private void write() {
+            try {
+                byte[] event;
+                while(open && (event = events.poll()) != null) {
+                    output.write(event);
+                    if(events.isEmpty()) {
+                        output.flush();
+                    }
+                }
+            } catch (IOException e) {
+                open = false;
+                subscriptions.remove(this);
+            }
+            if(!open && !outputClosed) {
+                outputClosed = true;
+                events.clear();
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    //the client is gone already
+                }
+            }
+            draining.set(false);
+            //events or a close may have arrived while the task was finishing
+            if((open && !events.isEmpty()) || (!open && !outputClosed)) {
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Resolves the links of the primary resource and its relationships against the base uri of the feed while they are
+     * written, and sets the self link of the primary resource, adding it if the resource has no links.
+     */
+    private static final class LinkResolvingGenerator extends JsonGeneratorDelegate {
+        private final URI baseUri;
+        private final String selfLink;
+        private boolean selfLinkWritten;
+
+        private LinkResolvingGenerator(JsonGenerator gen, URI baseUri, String selfLink) {
+            super(gen, false);
+            this.baseUri = baseUri;
+            this.selfLink = selfLink;
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            JsonStreamContext context = getOutputContext();
+            if(text == null || !isLinks(context)) {
+                super.writeString(text);
+                return;
+            }
+            JsonStreamContext owner = context.getParent();
+            if(isPrimaryResource(owner) && "self".equals(context.getCurrentName())) {
+                selfLinkWritten = true;
+                super.writeString(selfLink);
+            } else if(isPrimaryResource(owner) || isRelationship(owner)) {
+                super.writeString(URI.create(text).isAbsolute()? text : baseUri.resolve(text).toString());
+            } else {
+                super.writeString(text);
+            }
+        }
+
+        @Override
+        public void writeString(SerializableString text) throws IOException {
+            if(isLinks(getOutputContext())) {
+                writeString(text.getValue());
+            } else {
+                super.writeString(text);
+            }
+        }
+
+        @Override
+        public void writeEndObject() throws IOException {
+            JsonStreamContext context = getOutputContext();
+            if(!selfLinkWritten) {
+                if(isLinks(context) && isPrimaryResource(context.getParent())) {
+                    delegate.writeStringField("self", selfLink);
+                    selfLinkWritten = true;
+                } else if(isPrimaryResource(context)) {
+                    delegate.writeObjectFieldStart("links");
+                    delegate.writeStringField("self", selfLink);
+                    delegate.writeEndObject();
+                    selfLinkWritten = true;
+                }
+            }
+            super.writeEndObject();
+        }
+
+        //the links object of an object, which is the current value of the parent context
+        private static boolean isLinks(JsonStreamContext context) {
+            JsonStreamContext parent = context.getParent();
+            return context.inObject() && parent != null && parent.inObject() && "links".equals(parent.getCurrentName());
+        }
+
+        //the resource object being the data of the document
+        private static boolean isPrimaryResource(JsonStreamContext context) {
+            JsonStreamContext document = context.getParent();
+            return context.inObject() && document != null && document.inObject() && "data".equals(document.getCurrentName())
+                    && document.getParent() != null && document.getParent().inRoot();
+        }
+
+        //a relationship object of the primary resource
+        private static boolean isRelationship(JsonStreamContext context) {
+            JsonStreamContext relationships = context.getParent();
+            if(!context.inObject() || relationships == null || !relationships.inObject()) {
+                return false;
+            }
+            JsonStreamContext resource = relationships.getParent();
+            return resource != null && "relationships".equals(resource.getCurrentName()) && isPrimaryResource(resource);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package response;
+
+import response.CompressingOutputStream.Encoding;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Compresses jsonAPI response bodies with gzip or deflate while they are written, if the client accepts it.
+ * Documents are compressed as resources are serialized, instead of after the whole body has been rendered,
+ * with a level depending on the size of the body and no compression at all for tiny documents.
+ * Register it with the application, e.g. {@code new ResourceConfig(...).register(JsonApiCompression.class)}.
+ * Bodies of other media types and bodies that already have a Content-Encoding are left alone.
+ */
+@Provider
+public class JsonApiCompression implements WriterInterceptor {
+    @Context
+    private HttpHeaders requestHeaders;
+
+    public JsonApiCompression() {
+    }
+
+    JsonApiCompression(HttpHeaders requestHeaders) {
+        this.requestHeaders = requestHeaders;
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if(!isJsonApi(context.getMediaType()) || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+        headers.add("Vary", HttpHeaders.ACCEPT_ENCODING);
+        Encoding encoding = negotiate(requestHeaders == null? null : requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if(encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        CompressingOutputStream output = new CompressingOutputStream(context.getOutputStream(), encoding, headers);
+        context.setOutputStream(output);
+        try {
+            context.proceed();
+            output.finish();
+        } finally {
+            output.release();
+        }
+    }
+
+    private static boolean isJsonApi(MediaType mediaType) {
+        //also matches jsonAPI media types with extensions, like the one of JsonApiAtomicResponse
+        return mediaType != null && "application".equalsIgnoreCase(mediaType.getType())
+                && "vnd.api+json".equalsIgnoreCase(mediaType.getSubtype());
+    }
+
+    /**
+     * Chooses the coding of the body from the Accept-Encoding header, preferring gzip.
+     * @return the coding, or null if the client accepts neither gzip nor deflate
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if(acceptEncoding == null) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        boolean wildcard = false;
+        for(String coding: acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = true;
+            for(int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if(parameter.startsWith("q=")) {
+                    accepted = qualityOf(parameter.substring(2)) > 0;
+                }
+            }
+            switch(name) {
+                case "gzip":
+                case "x-gzip":
+                    gzip = accepted;
+                    break;
+                case "deflate":
+                    deflate = accepted;
+                    break;
+                case "*":
+                    wildcard = accepted;
+                    break;
+                default:
+            }
+        }
+        if(gzip || (wildcard && !acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip"))) {
+            return Encoding.GZIP;
+        }
+        return deflate? Encoding.DEFLATE : null;
+    }
+
+    private static double qualityOf(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -2,16 +2,43 @@ package response;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.ContextAttributes;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import serializer.JsonApiSerializer;
+import util.CompactNodeFactory;
+import util.IdentityMemo;
+import util.ResourceIdentifier;
+import util.ResourceMetadata;
+import util.ResourceMetadata.Relationship;
+import util.SerializationEvents;
+import util.TraversalLimits;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import static util.Assert.assertHasValidJsonApiAnnotations;
+import static util.Assert.assertIsValidRelationship;
 import static util.JsonUtils.*;
 
 public class JsonApiResponse {
@@ -31,59 +58,141 @@ public class JsonApiResponse {
         return new ResponseBuilder(new JsonApiResponse(uriInfo, Response.Status.OK));
     }
 
+    static void createResourceSelfLink(UriInfo uriInfo, ObjectNode el) {
+        ObjectNode linkNode;
+        createNodeIfNotExisting(el, "links");
+
+        linkNode = (ObjectNode) el.get("links");
+
+        String id = el.get("id").textValue();
+        URI ref = uriInfo.getAbsolutePath().resolve("/").resolve(id);
+        linkNode.set("self", JsonNodeFactory.instance.textNode(ref.toString()));
+        el.set("links", linkNode);
+    }
+
+    /**
+     * Updates existing, possibly relative links so they hold the absolute address afterwards.
+     */
+    static void updateLinks(UriInfo uriInfo, JsonNode dataNode) {
+        if(dataNode.isArray()) {
+            for(JsonNode dataElement: dataNode) {
+                updateLinks(uriInfo, dataElement);
+            }
+        } else {
+            URI baseUri = uriInfo.getAbsolutePath().resolve("/");
+            updateLinkNode(baseUri, dataNode);
+            //links of relationships, e.g. to further pages of their data
+            for(JsonNode relationship: dataNode.path("relationships")) {
+                updateLinkNode(baseUri, relationship);
+            }
+        }
+    }
+
+    private static void updateLinkNode(URI baseUri, JsonNode node) {
+        if (node.has("links")) {
+            ObjectNode linkNode = (ObjectNode) node.get("links");
+
+            linkNode
+                    .fieldNames()
+                    .forEachRemaining(
+                            fn -> linkNode.set(fn, updateSingleLinkNode(baseUri, linkNode, fn))
+                    );
+        }
+    }
+
+    private static JsonNode updateSingleLinkNode(URI baseUri, ObjectNode linkNode, String nodeName) {
+        JsonNode refNode = linkNode.get(nodeName);
+        if(isAbsolute(refNode.textValue())) {
+            return refNode;
+        } else {
+            URI absUri = baseUri.resolve(refNode.textValue());
+            return JsonNodeFactory.instance.textNode(absUri.toString());
+        }
+    }
+
+    private static boolean isAbsolute(String linkNode) {
+        return URI.create(linkNode).isAbsolute();
+    }
+
     private static class ResponseBuilder implements RequiredEntity, Buildable, WithRelationship {
         private final JsonApiResponse instance;
-        private final ObjectMapper mapper = new ObjectMapper();
+        //the document is held in memory until the response is written, so its objects are stored compactly
+        private final ObjectMapper mapper = new ObjectMapper().setNodeFactory(CompactNodeFactory.get());
         private final SimpleModule module = new SimpleModule();
+        private Object entity;
+        //relationships added to a single resource document, by name
+        private final Map<String, Object> addedRelationships = new LinkedHashMap<>();
+        //relationships added to the resources of a collection document, by name and primary resource
+        private final Map<String, Map<Object, Object>> addedCollectionRelationships = new LinkedHashMap<>();
+        private final IncludeTree includes = new IncludeTree();
+        private final List<Object> includedEntities = new ArrayList<>();
+        private final BatchLoader batchLoader = new BatchLoader();
+        private ServerTiming timing = ServerTiming.DISABLED;
+        //identifiers of all resources of the document, shared by the serializations of data and included resources
+        private final IdentityMemo memo = new IdentityMemo();
+        private ContextAttributes attributes = ContextAttributes.getEmpty().withSharedAttribute(IdentityMemo.class, memo);
 
         private ResponseBuilder(JsonApiResponse instance) {
             this.instance = instance;
         }
 
+        @Override
+        public RequiredEntity withServerTiming() {
+            if(!timing.isEnabled()) {
+                timing = new ServerTiming();
+            }
+            return this;
+        }
+
+        @Override
+        public RequiredEntity withRelationshipPageSize(int pageSize) {
+            //passed to the serializers with every conversion to a tree
+            attributes = attributes.withSharedAttribute(JsonApiSerializer.RELATIONSHIP_PAGE_SIZE, pageSize);
+            return this;
+        }
+
         @Override
         public Buildable data(Object entity) {
+            long start = timing.start();
             assertHasValidJsonApiAnnotations(entity);
+            timing.stop(ServerTiming.Phase.VALIDATION, start);
 
+            start = timing.start();
             module.addSerializer(new JsonApiSerializer(entity.getClass()));
             mapper.registerModule(module);
 
-            instance.document = mapper.valueToTree(entity);
+            this.entity = entity;
+            instance.document = toTree(entity);
             createSelfLink(instance.document);
+            timing.stop(ServerTiming.Phase.DATA, start);
 
             return this;
         }
 
         @Override
         public Buildable data(Collection<?> entityCollection) {
+            long start = timing.start();
             assertHasValidJsonApiAnnotations(entityCollection);
+            timing.stop(ServerTiming.Phase.VALIDATION, start);
 
+            start = timing.start();
             if(!entityCollection.isEmpty()) {
                 module.addSerializer(new JsonApiSerializer(entityCollection.toArray()[0].getClass()));
             }
             module.addSerializer(new JsonApiSerializer(Collection.class));
             mapper.registerModule(module);
 
-            instance.document = mapper.valueToTree(entityCollection);
+            this.entity = entityCollection;
+            instance.document = toTree(entityCollection);
             createSelfLink(instance.document);
             instance.document.get("data").elements().forEachRemaining(
-                    el -> createResourceSelfLink( (ObjectNode) el)
+                    el -> createResourceSelfLink(instance.uriInfo, (ObjectNode) el)
             );
+            timing.stop(ServerTiming.Phase.DATA, start);
 
             return this;
         }
 
-        private void createResourceSelfLink(ObjectNode el) {
-            ObjectNode linkNode;
-            createNodeIfNotExisting(el, "links");
-
-            linkNode = (ObjectNode) el.get("links");
-
-            String id = el.get("id").textValue();
-            URI ref = instance.uriInfo.getAbsolutePath().resolve("/").resolve(id);
-            linkNode.set("self", mapper.valueToTree(ref.toString()));
-            el.set("links", linkNode);
-        }
-
         private void createSelfLink(JsonNode document) {
             ObjectNode linkNode = mapper.createObjectNode();
             String selfRef = instance.uriInfo.getAbsolutePath().toString();
@@ -93,49 +202,39 @@ public class JsonApiResponse {
 
         @Override
         public Response build() {
-            updateLinks(instance.document.get("data"));
-
-            return Response
-                    .status(instance.statusCode)
-                    .type(JSONAPI_TYPE)
-                    .entity(instance.document)
-                    .build();
-        }
-
-        /**
-         * Updates existing, possibly relative links so they hold the absolute address afterwards.
-         */
-        private void updateLinks(JsonNode dataNode) {
-            if(dataNode.isArray()) {
-                for(JsonNode dataElement: dataNode) {
-                    updateLinks(dataElement);
-                }
-            } else {
-                if (dataNode.has("links")) {
-                    ObjectNode linkNode = (ObjectNode) dataNode.get("links");
-                    URI baseUri = instance.uriInfo.getAbsolutePath().resolve("/");
-
-                    linkNode
-                            .fieldNames()
-                            .forEachRemaining(
-                                    fn -> linkNode.set(fn, updateSingleLinkNode(baseUri, linkNode, fn))
-                            );
+            SerializationEvents events = SerializationEvents.get();
+            long start = timing.start();
+            Object event = events.begin(SerializationEvents.Kind.LINKS);
+            updateLinks(instance.uriInfo, instance.document.get("data"));
+            events.end(event, entity, -1);
+            timing.stop(ServerTiming.Phase.LINKS, start);
+            if(!includes.isEmpty() || !includedEntities.isEmpty()) {
+                start = timing.start();
+                event = events.begin(SerializationEvents.Kind.INCLUDES);
+                ArrayNode includedNode = null;
+                try {
+                    includedNode = resolveIncludes();
+                } finally {
+                    events.end(event, null, (includedNode != null)? includedNode.size() : 0, -1);
                 }
+                timing.stop(ServerTiming.Phase.INCLUDES, start);
+
+                start = timing.start();
+                event = events.begin(SerializationEvents.Kind.LINKS);
+                updateLinks(instance.uriInfo, includedNode);
+                events.end(event, null, includedNode.size(), -1);
+                timing.stop(ServerTiming.Phase.LINKS, start);
+                instance.document.set("included", includedNode);
             }
-        }
 
-        private JsonNode updateSingleLinkNode(URI baseUri, ObjectNode linkNode, String nodeName) {
-            JsonNode refNode = linkNode.get(nodeName);
-            if(isAbsolute(refNode.textValue())) {
-                return refNode;
-            } else {
-                URI absUri = baseUri.resolve(refNode.textValue());
-                return mapper.valueToTree(absUri);
+            Response.ResponseBuilder response = Response
+                    .status(instance.statusCode)
+                    .type(JSONAPI_TYPE)
+                    .entity(instance.document);
+            if(timing.isEnabled()) {
+                response.header(ServerTiming.HEADER, timing.toHeaderValue());
             }
-        }
-
-        private boolean isAbsolute(String linkNode) {
-            return URI.create(linkNode).isAbsolute();
+            return response.build();
         }
 
         @Override
@@ -167,53 +266,270 @@ public class JsonApiResponse {
 
         @Override
         public WithRelationship addRelationship(String name, Object entity, URI location) {
-            assertHasValidJsonApiAnnotations(entity);
+            long start = timing.start();
+            assertIsValidRelationship(entity);
+            timing.stop(ServerTiming.Phase.VALIDATION, start);
 
+            start = timing.start();
             if(dataNode().isArray()) {
-                //exception?
-                //do it for each datanode element?
-            } else {
-                ObjectNode relationshipsNode = createNodeIfNotExisting(dataNode(), "relationships");
-                ObjectNode currentRelationship = createNodeIfNotExisting(relationshipsNode, name);
-                try {
-                    JsonNode relationshipDataNode = createRelationshipDataNode(entity);
-                    currentRelationship.set("data", relationshipDataNode);
-                    if(location != null) {
-                        ObjectNode linkNode = mapper.createObjectNode();
-                        String ref;
-                        if(entity instanceof Collection) {
-                            ref = location.toString();
-                        } else {
-                            ref = location.resolve("/").resolve(getJsonApiId(entity)).toString();
-                        }
-                        linkNode.set("self", mapper.valueToTree(ref));
-                        currentRelationship.set("links", linkNode);
-                    }
+                throw new IllegalArgumentException("Relationships of collection documents differ per resource, use addRelationships to add relationship " + name);
+            }
+            addedRelationships.put(name, entity);
+            setRelationship((ObjectNode) dataNode(), name, entity, location);
+            timing.stop(ServerTiming.Phase.RELATIONSHIPS, start);
+
+            return this;
+        }
+
+        @Override
+        public WithRelationship addRelationships(String name, Map<String, ?> relatedById) {
+            return addRelationships(name, relatedById, null);
+        }
+
+        @Override
+        public WithRelationship addRelationships(String name, Map<String, ?> relatedById, URI location) {
+            Objects.requireNonNull(relatedById);
+            //the serialized id of each resource is at hand, so no ids are read from the resources again
+            return addRelationships(name, (resource, resourceNode) -> relatedById.get(resourceNode.path("id").textValue()), location);
+        }
+
+        @Override
+        public <T> WithRelationship addRelationships(String name, Function<? super T, ?> relatedOf) {
+            return addRelationships(name, relatedOf, null);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> WithRelationship addRelationships(String name, Function<? super T, ?> relatedOf, URI location) {
+            Objects.requireNonNull(relatedOf);
+            return addRelationships(name, (resource, resourceNode) -> relatedOf.apply((T) resource), location);
+        }
 
-                } catch (ReflectiveOperationException e) {
-                    throw new IllegalArgumentException("Only correctly annotated classes can be added as relationships. Please add JsonApiResource and JsonApiId annotations to " + entity.getClass(), e);
+        /**
+         * Adds a relationship to every primary resource in a single pass. The resources and their serialized resource objects
+         * are walked side by side, since the data array holds one resource object per resource in the order of the collection.
+         */
+        private WithRelationship addRelationships(String name, BiFunction<Object, JsonNode, Object> relatedOf, URI location) {
+            Objects.requireNonNull(name);
+            long start = timing.start();
+            JsonNode data = dataNode();
+            Collection<?> resources = (entity instanceof Collection)? (Collection<?>) entity : Collections.singletonList(entity);
+            Iterator<JsonNode> resourceNodes = data.isArray()? data.elements() : Collections.singletonList(data).iterator();
+            Map<Object, Object> relatedByResource = new IdentityHashMap<>(resources.size());
+            for(Object resource: resources) {
+                ObjectNode resourceNode = (ObjectNode) resourceNodes.next();
+                Object related = relatedOf.apply(resource, resourceNode);
+                if(related != null) {
+                    assertIsValidRelationship(related);
                 }
+                relatedByResource.put(resource, related);
+                setRelationship(resourceNode, name, related, location);
+            }
+            if(entity instanceof Collection) {
+                addedCollectionRelationships.put(name, relatedByResource);
+            } else {
+                addedRelationships.put(name, relatedByResource.get(entity));
             }
+            timing.stop(ServerTiming.Phase.RELATIONSHIPS, start);
 
             return this;
         }
 
+        /**
+         * Sets the relationship object of a resource object. Resources without related resource get null as resource linkage.
+         */
+        private void setRelationship(ObjectNode resourceNode, String name, Object related, URI location) {
+            ObjectNode relationshipsNode = createNodeIfNotExisting(resourceNode, "relationships");
+            ObjectNode currentRelationship = createNodeIfNotExisting(relationshipsNode, name);
+            if(related == null) {
+                currentRelationship.set("data", NullNode.getInstance());
+                return;
+            }
+            try {
+                JsonNode relationshipDataNode = createRelationshipDataNode(related, memo);
+                currentRelationship.set("data", relationshipDataNode);
+                //resources with a local id have no address yet
+                if(location != null && !(related instanceof ResourceIdentifier && ((ResourceIdentifier) related).isLocal())) {
+                    ObjectNode linkNode = mapper.createObjectNode();
+                    String ref;
+                    if(related instanceof Collection) {
+                        ref = location.toString();
+                    } else {
+                        ref = location.resolve("/").resolve(resourceId(related)).toString();
+                    }
+                    linkNode.set("self", mapper.valueToTree(ref));
+                    currentRelationship.set("links", linkNode);
+                }
+
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Only correctly annotated classes can be added as relationships. Please add JsonApiResource and JsonApiId annotations to " + related.getClass(), e);
+            }
+        }
+
         @Override
         public JsonApiResponse.WithRelationship addRelationship(String name, Object entity) {
             addRelationship(name, entity, null);
-            assertHasValidJsonApiAnnotations(entity);
 
             return this;
         }
 
+        @Override
+        public Buildable withLoader(RelationshipLoader<?> loader) {
+            batchLoader.register(loader);
+            return this;
+        }
+
+        @Override
+        public Buildable withLoaderExecutor(Executor executor) {
+            batchLoader.setExecutor(executor);
+            return this;
+        }
+
         @Override
         public WithRelationship include(Object included) {
-            return null;
+            assertIsValidRelationship(included);
+            includedEntities.add(included);
+            return this;
         }
 
         @Override
         public WithRelationship include(String includedName) {
-            return null;
+            int maxDepth = TraversalLimits.defaults().getMaxDepth();
+            if(IncludeTree.parse(includedName).depth() > maxDepth) {
+                throw new IllegalArgumentException("Include parameter '" + includedName
+                        + "' contains a path longer than the limit of " + maxDepth + " relationships");
+            }
+            includes.add(includedName);
+            return this;
+        }
+
+        /**
+         * Resolves the include tree breadth-first: the related resources of every include path level are collected
+         * for all resources of the previous level together, so each relationship is walked once per level.
+         * Resource identifiers are loaded by the registered loaders, once per type and level.
+         * Every resource is included at most once and primary resources are not included at all.
+         */
+        private ArrayNode resolveIncludes() {
+            ArrayNode includedNode = mapper.createArrayNode();
+            Set<String> includedKeys = new HashSet<>();
+            List<Object> primaryResources = (entity instanceof Collection)?
+                    new ArrayList<>((Collection<?>) entity) : Collections.singletonList(entity);
+            for(Object primaryResource: primaryResources) {
+                includedKeys.add(resourceKey(primaryResource));
+            }
+            List<Object> explicitlyIncluded = new ArrayList<>();
+            for(Object included: includedEntities) {
+                explicitlyIncluded.addAll(flatten(included));
+            }
+
+            List<IncludeLevel> levels = Collections.singletonList(new IncludeLevel(includes, primaryResources));
+            for(int depth = 0; !levels.isEmpty(); depth++) {
+                //collect the related resources of all include paths of this depth first,
+                //so identifiers of every type are loaded with a single call for the whole level
+                Map<IncludeTree, List<Object>> relatedByPath = new LinkedHashMap<>();
+                List<Object> allRelated = new ArrayList<>((depth == 0)? explicitlyIncluded : Collections.emptyList());
+                for(IncludeLevel level: levels) {
+                    for(Map.Entry<String, IncludeTree> include: level.tree.getChildren().entrySet()) {
+                        List<Object> relatedResources = new ArrayList<>();
+                        for(Object resource: level.resources) {
+                            relatedResources.addAll(flatten(getRelated(resource, include.getKey(), depth == 0)));
+                        }
+                        relatedByPath.put(include.getValue(), relatedResources);
+                        allRelated.addAll(relatedResources);
+                    }
+                }
+                batchLoader.resolve(allRelated);
+                if(depth == 0) {
+                    //explicitly included resources come first, their identifiers are already loaded with the first level
+                    for(Object resource: batchLoader.resolve(explicitlyIncluded)) {
+                        addIncluded(resource, includedNode, includedKeys);
+                    }
+                }
+
+                List<IncludeLevel> nextLevels = new ArrayList<>();
+                for(Map.Entry<IncludeTree, List<Object>> related: relatedByPath.entrySet()) {
+                    List<Object> relatedResources = batchLoader.resolve(related.getValue());
+                    for(Object relatedResource: relatedResources) {
+                        addIncluded(relatedResource, includedNode, includedKeys);
+                    }
+                    if(!related.getKey().isEmpty()) {
+                        nextLevels.add(new IncludeLevel(related.getKey(), relatedResources));
+                    }
+                }
+                levels = nextLevels;
+            }
+            return includedNode;
+        }
+
+        private Object getRelated(Object resource, String relationshipName, boolean primary) {
+            if(primary && !(entity instanceof Collection) && addedRelationships.containsKey(relationshipName)) {
+                return addedRelationships.get(relationshipName);
+            }
+            if(primary && addedCollectionRelationships.containsKey(relationshipName)) {
+                return addedCollectionRelationships.get(relationshipName).get(resource);
+            }
+            Relationship relationship = ResourceMetadata.of(resource.getClass()).getRelationship(relationshipName);
+            if(relationship == null) {
+                throw new IllegalArgumentException(resource.getClass().getSimpleName()
+                        + " has no relationship named " + relationshipName + " that could be included");
+            }
+            try {
+                return relationship.get(resource);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Relationship " + relationshipName + " cannot be read", e);
+            }
+        }
+
+        private void addIncluded(Object resource, ArrayNode includedNode, Set<String> includedKeys) {
+            if(includedKeys.add(resourceKey(resource))) {
+                includedNode.add(toTree(resource).get("data"));
+            }
+        }
+
+        /**
+         * Serializes a document to a tree, passing the attributes of the response, e.g. the shared identity memo,
+         * to the serializers. Works like {@link ObjectMapper#valueToTree(Object)}, which cannot take attributes.
+         */
+        private ObjectNode toTree(Object value) {
+            TokenBuffer buffer = new TokenBuffer(mapper, false);
+            try {
+                mapper.writer().with(attributes).writeValue(buffer, value);
+                return mapper.readTree(buffer.asParser());
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
+        private static List<Object> flatten(Object related) {
+            List<Object> resources = new ArrayList<>();
+            if(related instanceof Collection) {
+                for(Object element: (Collection<?>) related) {
+                    if(element != null && !(element instanceof Collection)) {
+                        resources.add(element);
+                    }
+                }
+            } else if(related != null) {
+                resources.add(related);
+            }
+            return resources;
+        }
+
+        private String resourceKey(Object resource) {
+            if(resource instanceof ResourceIdentifier) {
+                if(((ResourceIdentifier) resource).isLocal()) {
+                    throw new IllegalArgumentException("Resource " + resource + " only has a local id and cannot be identified in a response");
+                }
+                return getJsonApiType(resource) + '/' + ((ResourceIdentifier) resource).getId();
+            }
+            try {
+                return memo.get(resource).getKey();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Id of " + resource.getClass() + " cannot be determined", e);
+            }
+        }
+
+        private String resourceId(Object resource) throws ReflectiveOperationException {
+            return (resource instanceof ResourceIdentifier)? ((ResourceIdentifier) resource).getId() : memo.get(resource).getId();
         }
 
         private JsonNode dataNode() {
@@ -221,10 +537,39 @@ public class JsonApiResponse {
         }
     }
 
+    private static final class IncludeLevel {
+        private final IncludeTree tree;
+        private final List<Object> resources;
+
+        private IncludeLevel(IncludeTree tree, List<Object> resources) {
+            this.tree = tree;
+            this.resources = resources;
+        }
+    }
+
     /**
      * Interface for a Responsebuilder that needs an entity for further processing
      */
     public interface RequiredEntity {
+        /**
+         * Adds a Server-Timing header to the response, containing the time spent on validation, data serialization,
+         * relationships, includes and link resolution while building the response.
+         * Without calling this method, no time is measured.
+         *
+         * @return this Responsebuilder, still requiring an entity.
+         */
+        RequiredEntity withServerTiming();
+
+        /**
+         * Limits the resource identifiers written per to-many relationship, for relationships without page size
+         * in their @JsonApiRelationship annotation. Larger relationships only contain the first page as data,
+         * with related and next links and their total count as meta.
+         *
+         * @param pageSize the maximum number of resource identifiers per relationship
+         * @return this Responsebuilder, still requiring an entity.
+         */
+        RequiredEntity withRelationshipPageSize(int pageSize);
+
         /**
          * Add a single entity to a response.
          *
@@ -288,6 +633,61 @@ public class JsonApiResponse {
          * @return a buildable Responsebuilder on which addIncluded() can be called.
          */
         WithRelationship addRelationship(String name, Object entity, URI location);
+
+        /**
+         * Adds a relationship to every primary resource, also for collection documents.
+         * All relationship objects are added in one pass over the data.
+         * @param name the name of the relationship
+         * @param relatedById the related entity, collection of entities or resource identifier(s) by id of the primary resource.
+         *                    Resources without entry get null as resource linkage.
+         * @return a buildable Responsebuilder on which addIncluded() can be called.
+         */
+        WithRelationship addRelationships(String name, Map<String, ?> relatedById);
+
+        /**
+         * Same as {@link #addRelationships(String, Map)}, generating selflinks at {@param location}.
+         */
+        WithRelationship addRelationships(String name, Map<String, ?> relatedById, URI location);
+
+        /**
+         * Adds a relationship to every primary resource, also for collection documents.
+         * All relationship objects are added in one pass over the data.
+         * @param name the name of the relationship
+         * @param relatedOf returns the related entity, collection of entities or resource identifier(s) of a primary resource,
+         *                  or null if the resource has no related resource
+         * @return a buildable Responsebuilder on which addIncluded() can be called.
+         */
+        <T> WithRelationship addRelationships(String name, Function<? super T, ?> relatedOf);
+
+        /**
+         * Same as {@link #addRelationships(String, Function)}, generating selflinks at {@param location}.
+         */
+        <T> WithRelationship addRelationships(String name, Function<? super T, ?> relatedOf, URI location);
+
+        /**
+         * Includes the resources of relationships, identified by the names of the corresponding relationships.
+         * Accepts the value of the jsonAPI include query parameter, i.e. a comma separated list of dotted relationship paths
+         * like "comments.author". May be called multiple times, null or empty values are ignored.
+         * @param includedName identifier for the included relationship
+         * @return a buildable ResponseBuilder on which addIncluded() can be called.
+         * @throws IllegalArgumentException if a path is longer than the maximum depth of {@link TraversalLimits#defaults()}
+         */
+        WithRelationship include(String includedName);
+
+        /**
+         * Registers a loader for included resources that are referenced by {@link util.ResourceIdentifier}s.
+         * @param loader the loader for the resources of one jsonAPI type
+         * @return a buildable Responsebuilder.
+         */
+        Buildable withLoader(RelationshipLoader<?> loader);
+
+        /**
+         * Sets the executor on which loaders of different types run concurrently. By default, loaders run one after another
+         * on the thread building the response.
+         * @param executor the executor for loaders
+         * @return a buildable Responsebuilder.
+         */
+        Buildable withLoaderExecutor(Executor executor);
     }
 
     /**
@@ -300,15 +700,9 @@ public class JsonApiResponse {
          * Adds a included resource to the generated response body.
          *
          * @param included the entity to be included. Entity has to be added as a relationship before.
+         *                 Resource identifiers are loaded with the loader registered for their type.
          * @return a buildable ResponseBuilder on which addIncluded() can be called.
          */
         WithRelationship include(Object included);
-
-        /**
-         * Same as above, except the resource to be included is identified by the name of the corresponding relationship.
-         * @param includedName identifier for the included relationship
-         * @return a buildable ResponseBuilder on which addIncluded() can be called.
-         */
-        WithRelationship include(String includedName);
     }
 }
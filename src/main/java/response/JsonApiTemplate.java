@@ -0,0 +1,185 @@
+package response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A built jsonAPI response frozen into pre-encoded bytes, for documents that are the same for every request.
+ * Only the base URI of links depends on the request: links starting with the base URI of the request the template was
+ * frozen from are split at the base URI, which is spliced in again when the template is rendered for another request.
+ * Rendering does no serialization at all, it copies the encoded segments and the encoded base URI into the response body.
+ * Templates are immutable, changed content needs a new template, e.g. by invalidating it in {@link JsonApiTemplates}.
+ */
+public final class JsonApiTemplate {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final int status;
+    private final byte[][] segments;
+    private final int segmentsLength;
+    private volatile Rendering lastRendering;
+
+    private JsonApiTemplate(int status, byte[][] segments) {
+        this.status = status;
+        this.segments = segments;
+        int length = 0;
+        for(byte[] segment: segments) {
+            length += segment.length;
+        }
+        this.segmentsLength = length;
+    }
+
+    /**
+     * Freezes a response built by {@link JsonApiResponse}. The response itself is not changed.
+     * @param response the built response
+     * @param uriInfo the uri info the response was built with
+     * @return the template
+     * @throws IllegalArgumentException if the response has no jsonAPI document as entity
+     */
+    public static JsonApiTemplate freeze(Response response, UriInfo uriInfo) {
+        if(!(response.getEntity() instanceof ObjectNode)) {
+            throw new IllegalArgumentException("Only responses with a jsonAPI document as entity can be frozen");
+        }
+        String base = baseUri(uriInfo);
+        //a marker that cannot be part of the document, replaced by the base URI on rendering
+        String marker = "jsonapi-base-" + UUID.randomUUID();
+        ObjectNode document = ((ObjectNode) response.getEntity()).deepCopy();
+        markLinks(document, base, marker, false);
+
+        byte[] encoded;
+        try {
+            encoded = mapper.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Response document cannot be encoded", e);
+        }
+        return new JsonApiTemplate(response.getStatus(), split(encoded, marker.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Renders the template for a request.
+     * @param uriInfo the uri info of the request, whose base URI is used for all links
+     * @return the response, with the encoded document as entity
+     */
+    public Response render(UriInfo uriInfo) {
+        return Response
+                .status(status)
+                .type(JsonApiResponse.JSONAPI_TYPE)
+                .entity(renderBytes(baseUri(uriInfo)))
+                .build();
+    }
+
+    /**
+     * @return the encoded document for a base URI. The last rendering is reused while requests keep the same base URI.
+     */
+    private byte[] renderBytes(String base) {
+        Rendering rendering = lastRendering;
+        if(rendering != null && rendering.base.equals(base)) {
+            return rendering.bytes;
+        }
+        byte[] encodedBase = JsonStringEncoder.getInstance().quoteAsUTF8(base);
+        byte[] bytes = new byte[segmentsLength + (segments.length - 1) * encodedBase.length];
+        int offset = 0;
+        for(int i = 0; i < segments.length; i++) {
+            if(i > 0) {
+                System.arraycopy(encodedBase, 0, bytes, offset, encodedBase.length);
+                offset += encodedBase.length;
+            }
+            System.arraycopy(segments[i], 0, bytes, offset, segments[i].length);
+            offset += segments[i].length;
+        }
+        lastRendering = new Rendering(base, bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the scheme and authority of the request, e.g. http://example.com:8080
+     */
+    private static String baseUri(UriInfo uriInfo) {
+        String base = uriInfo.getAbsolutePath().resolve("/").toString();
+        return base.endsWith("/")? base.substring(0, base.length() - 1) : base;
+    }
+
+    /**
+     * Replaces the base URI of all links in the members named links by the marker.
+     */
+    private static void markLinks(JsonNode node, String base, String marker, boolean links) {
+        if(node.isArray()) {
+            for(JsonNode element: node) {
+                markLinks(element, base, marker, false);
+            }
+        } else if(node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while(fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                if(links && value.isTextual() && isBelow(value.textValue(), base)) {
+                    field.setValue(TextNode.valueOf(marker + value.textValue().substring(base.length())));
+                } else {
+                    markLinks(value, base, marker, field.getKey().equals("links"));
+                }
+            }
+        }
+    }
+
+    private static boolean isBelow(String link, String base) {
+        if(!link.startsWith(base)) {
+            return false;
+        }
+        if(link.length() == base.length()) {
+            return true;
+        }
+        char next = link.charAt(base.length());
+        return next == '/' || next == '?' || next == '#';
+    }
+
+    private static byte[][] split(byte[] encoded, byte[] marker) {
+        List<byte[]> segments = new ArrayList<>();
+        int start = 0;
+        for(int i = 0; i <= encoded.length - marker.length; i++) {
+            if(matches(encoded, i, marker)) {
+                segments.add(copy(encoded, start, i));
+                start = i + marker.length;
+                i = start - 1;
+            }
+        }
+        segments.add(copy(encoded, start, encoded.length));
+        return segments.toArray(new byte[0][]);
+    }
+
+    private static boolean matches(byte[] encoded, int offset, byte[] marker) {
+        for(int i = 0; i < marker.length; i++) {
+            if(encoded[offset + i] != marker[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] copy(byte[] encoded, int from, int to) {
+        byte[] segment = new byte[to - from];
+        System.arraycopy(encoded, from, segment, 0, segment.length);
+        return segment;
+    }
+
+    private static final class Rendering {
+        private final String base;
+        private final byte[] bytes;
+
+        private Rendering(String base, byte[] bytes) {
+            this.base = base;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package response;
+
+import exceptions.JsonApiSerializationException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * Holds the templates of endpoints returning the same document to every caller, e.g. reference data or configuration.
+ * A template is built on the first request for its key and rendered for all later requests, until it is invalidated.
+ * Concurrent first requests wait for a single build instead of building the response each.
+ * <p>
+ * Usage: {@code return templates.render("countries", uriInfo, info -> JsonApiResponse.getResponse(info).data(countries).build());}
+ */
+public class JsonApiTemplates {
+    //builds are installed before they run, so invalidating a key also drops a build that is still running
+    private final ConcurrentMap<String, FutureTask<JsonApiTemplate>> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Renders the template of a key, building and freezing the response first if there is no template yet.
+     * @param key identifies the document, e.g. the path of the endpoint
+     * @param uriInfo the uri info of the request
+     * @param builder builds the response, it is only called if there is no template for the key
+     * @return the rendered response
+     * @throws JsonApiSerializationException if building the template failed with a checked exception or the thread was interrupted
+     */
+    public Response render(String key, UriInfo uriInfo, Function<UriInfo, Response> builder) {
+        FutureTask<JsonApiTemplate> template = templates.get(key);
+        if(template == null) {
+            FutureTask<JsonApiTemplate> build = new FutureTask<>(() -> JsonApiTemplate.freeze(builder.apply(uriInfo), uriInfo));
+            template = templates.putIfAbsent(key, build);
+            if(template == null) {
+                template = build;
+                build.run();
+            }
+        }
+        try {
+            return template.get().render(uriInfo);
+        } catch (ExecutionException e) {
+            //a failed build is not kept, the next request tries again
+            templates.remove(key, template);
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new JsonApiSerializationException("Building the template of " + key + " failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JsonApiSerializationException("Interrupted while waiting for the template of " + key, e);
+        }
+    }
+
+    /**
+     * Drops the template of a key, so the next request builds the response again.
+     * A build that is still running is dropped as well, its response is only returned to the requests waiting for it.
+     */
+    public void invalidate(String key) {
+        templates.remove(key);
+    }
+
+    public void invalidateAll() {
+        templates.clear();
+    }
+}
@@ -0,0 +1,26 @@
+package response;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads related resources that are referenced by {@link util.ResourceIdentifier}s, so they can be included.
+ * A loader is responsible for exactly one jsonAPI type and is called at most once per include level
+ * with the ids of all resources of its type needed on that level.
+ * @param <T> the jsonAPI resource class of the loaded resources
+ */
+public interface RelationshipLoader<T> {
+
+    /**
+     * @return the jsonAPI type of the loaded resources, as specified in their @JsonApiResource annotation
+     */
+    String type();
+
+    /**
+     * Loads resources by id, e.g. with a single database query.
+     * @param ids the ids of the needed resources
+     * @return the loaded resources by id. Ids without a resource in the result are not included.
+     * @throws Exception if loading fails, which fails building the response
+     */
+    Map<String, T> load(Set<String> ids) throws Exception;
+}
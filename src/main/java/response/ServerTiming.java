@@ -0,0 +1,75 @@
+package response;
+
+import java.util.Locale;
+
+/**
+ * Measures the phases of building a response for the Server-Timing header.
+ * Phases are measured with {@link System#nanoTime()} at their boundaries, the {@link #DISABLED} timer does not measure at all.
+ */
+class ServerTiming {
+    static final String HEADER = "Server-Timing";
+
+    static final ServerTiming DISABLED = new ServerTiming() {
+        @Override
+        long start() {
+            return 0;
+        }
+
+        @Override
+        void stop(Phase phase, long start) {
+        }
+    };
+
+    enum Phase {
+        VALIDATION("validation"),
+        DATA("data"),
+        LINKS("links"),
+        RELATIONSHIPS("relationships"),
+        INCLUDES("includes");
+
+        private final String metric;
+
+        Phase(String metric) {
+            this.metric = metric;
+        }
+    }
+
+    private final long[] durations = new long[Phase.values().length];
+    private final boolean[] measured = new boolean[Phase.values().length];
+
+    boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    /**
+     * @return the start time of a phase, to be passed to {@link #stop(Phase, long)}
+     */
+    long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since start to a phase. Phases may be measured multiple times, e.g. once per relationship.
+     */
+    void stop(Phase phase, long start) {
+        durations[phase.ordinal()] += System.nanoTime() - start;
+        measured[phase.ordinal()] = true;
+    }
+
+    /**
+     * @return the value of the Server-Timing header, containing the duration in milliseconds of every measured phase
+     */
+    String toHeaderValue() {
+        StringBuilder value = new StringBuilder();
+        for(Phase phase: Phase.values()) {
+            if(measured[phase.ordinal()]) {
+                if(value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(phase.metric).append(";dur=")
+                        .append(String.format(Locale.ROOT, "%.3f", durations[phase.ordinal()] / 1_000_000.0));
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package serializer;
+
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.cfg.SerializerFactoryConfig;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.ser.BasicSerializerFactory;
+import com.fasterxml.jackson.databind.ser.BeanSerializerFactory;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+/**
+ * Creates jackson's bean serializers for the attributes of resource classes.
+ * The @JsonSerialize annotation of @JsonApiResource is bypassed, so the properties of the resource class are serialized
+ * by jackson itself, respecting all jackson annotations and using jackson's serializers for the values.
+ * The bean serializer modifiers registered at the mapper are applied after the one removing the jsonAPI members.
+ */
+final class AttributeSerializerFactory extends BeanSerializerFactory {
+    //null if the module is not registered at an ObjectMapper
+    private final ObjectMapper owner;
+
+    AttributeSerializerFactory(ObjectMapper owner) {
+        this(new SerializerFactoryConfig().withSerializerModifier(new JsonApiBeanSerializerModifier()), owner);
+    }
+
+    private AttributeSerializerFactory(SerializerFactoryConfig config, ObjectMapper owner) {
+        super(config);
+        this.owner = owner;
+    }
+
+    @Override
+    public SerializerFactory withConfig(SerializerFactoryConfig config) {
+        return new AttributeSerializerFactory(config, owner);
+    }
+
+    /**
+     * Creates a serializer writing the attribute members of a resource, without the enclosing braces,
+     * so they can be written into the attributes object of the resource.
+     * @param provider the provider of the current serialization, defining the configuration of the serializer
+     * @param resourceClass the resource class
+     * @return the serializer of the attribute members
+     */
+    JsonSerializer<Object> createAttributeSerializer(SerializerProvider provider, Class<?> resourceClass) throws JsonMappingException {
+        JsonSerializer<Object> serializer = withMapperModifiers().createSerializer(provider, provider.constructType(resourceClass));
+        if(serializer instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) serializer).resolve(provider);
+        }
+        return serializer.unwrappingSerializer(NameTransformer.NOP);
+    }
+
+    /**
+     * Resource classes get their serializer from annotations, which would be the serializer of the whole resource.
+     */
+    @Override
+    protected JsonSerializer<Object> findSerializerFromAnnotation(SerializerProvider provider, Annotated annotated) throws JsonMappingException {
+        if(annotated instanceof AnnotatedClass && annotated.getRawType().isAnnotationPresent(JsonApiResource.class)) {
+            return null;
+        }
+        return super.findSerializerFromAnnotation(provider, annotated);
+    }
+
+    /**
+     * Get a factory also applying the modifiers of the mapper. They are looked up on use,
+     * so modules registered after the {@link JsonApiModule} are respected as well.
+     */
+    private BasicSerializerFactory withMapperModifiers() {
+        SerializerFactory mapperFactory = (owner != null)? owner.getSerializerFactory() : null;
+        if(!(mapperFactory instanceof BasicSerializerFactory)) {
+            return this;
+        }
+        SerializerFactoryConfig config = getFactoryConfig();
+        for(BeanSerializerModifier modifier: ((BasicSerializerFactory) mapperFactory).getFactoryConfig().serializerModifiers()) {
+            config = config.withSerializerModifier(modifier);
+        }
+        return new AttributeSerializerFactory(config, owner);
+    }
+}
@@ -0,0 +1,39 @@
+package serializer;
+
+import annotations.JsonApiId;
+import annotations.JsonApiLink;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces the properties of jackson's bean serializer for a resource class to its attributes.
+ * Id, relationships and links are removed, since they are written into the jsonAPI envelope around the attributes.
+ */
+class JsonApiBeanSerializerModifier extends BeanSerializerModifier {
+
+    @Override
+    public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+        if(!beanDesc.getBeanClass().isAnnotationPresent(JsonApiResource.class)) {
+            return beanProperties;
+        }
+        List<BeanPropertyWriter> attributes = new ArrayList<>(beanProperties.size());
+        for(BeanPropertyWriter property: beanProperties) {
+            //annotations of fields are merged into the getters of the same property
+            AnnotatedMember member = property.getMember();
+            if(!member.hasAnnotation(JsonApiId.class)
+                    && !member.hasAnnotation(JsonApiRelationship.class)
+                    && !member.hasAnnotation(JsonApiLink.class)) {
+                attributes.add(property);
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,120 @@
+package serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import exceptions.JsonApiSerializationException;
+import util.ResourceMetadata;
+import util.ResourceMetadata.Attribute;
+import util.ResourceMetadata.Relationship;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+
+import static util.Assert.assertHasValidJsonApiAnnotations;
+import static util.JsonUtils.createRelationshipDataNode;
+import static util.JsonUtils.getJsonApiId;
+import static util.JsonUtils.getJsonApiType;
+
+/**
+ * Creates jsonAPI update documents that only contain the differences between two versions of a resource.
+ * Values are compared by reading the attributes and relationships of both versions directly,
+ * only changed values are serialized.
+ */
+public class JsonApiDelta {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonApiDelta() {
+    }
+
+    /**
+     * Creates a jsonAPI update document containing the changed attributes and relationships of a resource.
+     * Changed relationships contain the complete new resource linkage, since jsonAPI updates replace relationships completely.
+     * If nothing changed, the resource object of the document contains only type and id.
+     * @param previous the previous version of the resource
+     * @param current the current version of the resource
+     * @return the update document
+     * @throws IllegalArgumentException if the two versions are of different classes or have different ids
+     */
+    public static ObjectNode createUpdateDocument(Object previous, Object current) {
+        assertHasValidJsonApiAnnotations(previous);
+        assertHasValidJsonApiAnnotations(current);
+        if(previous.getClass() != current.getClass()) {
+            throw new IllegalArgumentException("Both versions need to be instances of the same class, but were "
+                    + previous.getClass() + " and " + current.getClass());
+        }
+        ResourceMetadata metadata = ResourceMetadata.of(current.getClass());
+
+        try {
+            Object id = metadata.getId(current);
+            if(!Objects.equals(metadata.getId(previous), id)) {
+                throw new IllegalArgumentException("Both versions need to have the same id");
+            }
+
+            ObjectNode dataNode = mapper.createObjectNode();
+            dataNode.put("type", metadata.getType());
+            dataNode.put("id", metadata.getIdString(current));
+
+            ObjectNode attributesNode = mapper.createObjectNode();
+            for(Attribute attribute: metadata.getAttributes()) {
+                Object currentValue = attribute.get(current);
+                if(!Objects.deepEquals(attribute.get(previous), currentValue)) {
+                    attributesNode.set(attribute.getName(), mapper.valueToTree(currentValue));
+                }
+            }
+            if(attributesNode.size() > 0) {
+                dataNode.set("attributes", attributesNode);
+            }
+
+            ObjectNode relationshipsNode = mapper.createObjectNode();
+            for(Relationship relationship: metadata.getRelationships()) {
+                Object currentValue = relationship.get(current);
+                if(!sameLinkage(relationship.get(previous), currentValue)) {
+                    ObjectNode relationshipNode = mapper.createObjectNode();
+                    relationshipNode.set("data", currentValue == null?
+                            NullNode.getInstance() : createRelationshipDataNode(currentValue));
+                    relationshipsNode.set(relationship.getName(), relationshipNode);
+                }
+            }
+            if(relationshipsNode.size() > 0) {
+                dataNode.set("relationships", relationshipsNode);
+            }
+
+            ObjectNode document = mapper.createObjectNode();
+            document.set("data", dataNode);
+            return document;
+        } catch (ReflectiveOperationException e) {
+            throw new JsonApiSerializationException("Comparing versions of " + current.getClass() + " failed", e);
+        }
+    }
+
+    /**
+     * Compares the resource linkage of two relationship values by type and id of the related resources.
+     */
+    private static boolean sameLinkage(Object previous, Object current) throws IllegalAccessException, InvocationTargetException {
+        if(previous == null || current == null) {
+            return previous == current;
+        }
+        if(previous instanceof Collection && current instanceof Collection) {
+            Collection<?> previousCollection = (Collection<?>) previous;
+            Collection<?> currentCollection = (Collection<?>) current;
+            if(previousCollection.size() != currentCollection.size()) {
+                return false;
+            }
+            Iterator<?> previousElements = previousCollection.iterator();
+            for(Object currentElement: currentCollection) {
+                if(!sameLinkage(previousElements.next(), currentElement)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if(previous instanceof Collection || current instanceof Collection) {
+            return false;
+        }
+        return getJsonApiType(previous).equals(getJsonApiType(current))
+                && Objects.equals(getJsonApiId(previous), getJsonApiId(current));
+    }
+}
@@ -0,0 +1,79 @@
+package serializer;
+
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.databind.type.CollectionType;
+
+import java.util.Collection;
+
+/**
+ * Jackson module serializing jsonAPI resources with jackson's own bean serializers for the attributes.
+ * Attributes are discovered and written by jackson, so all jackson annotations (e.g. @JsonIgnore, @JsonInclude, @JsonFormat)
+ * are respected and jackson's serializers are reused for the attribute values.
+ * Type, id, links and relationships are written around them as before.
+ * Collections are serialized as jsonAPI documents if their element type is a resource class, e.g. for
+ * {@code mapper.writerFor(new TypeReference<List<Article>>() {})}.
+ * <p>
+ * Usage: {@code new ObjectMapper().registerModule(new JsonApiModule())}
+ */
+public class JsonApiModule extends SimpleModule {
+
+    public JsonApiModule() {
+        super("JsonApiModule");
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        //one factory per mapper, so it can apply the bean serializer modifiers of that mapper
+        ObjectCodec owner = context.getOwner();
+        AttributeSerializerFactory attributeSerializerFactory = new AttributeSerializerFactory(
+                (owner instanceof ObjectMapper)? (ObjectMapper) owner : null);
+        //takes precedence over the @JsonSerialize annotation of @JsonApiResource
+        context.insertAnnotationIntrospector(new ResourceIntrospector(attributeSerializerFactory));
+        context.addSerializers(new ResourceCollectionSerializers(attributeSerializerFactory));
+    }
+
+    private static class ResourceIntrospector extends NopAnnotationIntrospector {
+        private final AttributeSerializerFactory attributeSerializerFactory;
+
+        private ResourceIntrospector(AttributeSerializerFactory attributeSerializerFactory) {
+            this.attributeSerializerFactory = attributeSerializerFactory;
+        }
+
+        @Override
+        public Object findSerializer(Annotated annotated) {
+            if(annotated instanceof AnnotatedClass && annotated.getRawType().isAnnotationPresent(JsonApiResource.class)) {
+                return new JsonApiSerializer<>(annotated.getRawType(), attributeSerializerFactory);
+            }
+            return null;
+        }
+    }
+
+    private static class ResourceCollectionSerializers extends Serializers.Base {
+        private final AttributeSerializerFactory attributeSerializerFactory;
+
+        private ResourceCollectionSerializers(AttributeSerializerFactory attributeSerializerFactory) {
+            this.attributeSerializerFactory = attributeSerializerFactory;
+        }
+
+        @Override
+        public JsonSerializer<?> findCollectionSerializer(SerializationConfig config, CollectionType type, BeanDescription beanDesc,
+                                                          TypeSerializer elementTypeSerializer, JsonSerializer<Object> elementValueSerializer) {
+            if(type.getContentType().getRawClass().isAnnotationPresent(JsonApiResource.class)) {
+                return new JsonApiSerializer<>(Collection.class, attributeSerializerFactory);
+            }
+            return null;
+        }
+    }
+}
@@ -1,217 +1,268 @@
 package serializer;
 
-import annotations.JsonApiId;
-import annotations.JsonApiLink;
-import annotations.JsonApiRelationship;
-import annotations.JsonApiResource;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
-import exceptions.JsonApiSerializationException;
+import util.IdentityMemo;
+import util.ResourceMetadata;
+import util.ResourceMetadata.Relationship;
+import util.SerializationEvents;
+import util.Traversal;
+import util.TraversalLimits;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static util.Assert.assertHasValidJsonApiAnnotations;
-import static util.Assert.isGettable;
 import static util.JsonUtils.*;
 
 public class JsonApiSerializer<T> extends StdSerializer<Object> {
-    private static final ObjectMapper mapper = new ObjectMapper();
+    //traversal of the outermost document being serialized by the current thread, shared with nested resource documents
+    private static final ThreadLocal<Traversal> currentTraversal = new ThreadLocal<>();
+
+    /**
+     * Key of the jackson attribute holding the default page size of to-many relationships, as Integer.
+     * Applies to relationships without page size in their @JsonApiRelationship annotation, e.g.
+     * {@code mapper.writer().withAttribute(JsonApiSerializer.RELATIONSHIP_PAGE_SIZE, 100)}.
+     */
+    public static final String RELATIONSHIP_PAGE_SIZE = "jsonapi.relationshipPageSize";
+
+    //only set for serializers of a JsonApiModule, which writes attributes with jackson's bean serializers
+    private final AttributeSerializerFactory attributeSerializerFactory;
+    private final Map<Class<?>, JsonSerializer<Object>> attributeSerializers = new ConcurrentHashMap<>();
 
     private JsonApiSerializer() {
         this(null);
     }
 
     public JsonApiSerializer(Class<Object> t) {
-        super(t);
+        this(t, null);
+    }
+
+    JsonApiSerializer(Class<?> t, AttributeSerializerFactory attributeSerializerFactory) {
+        super(t, false);
+        this.attributeSerializerFactory = attributeSerializerFactory;
     }
 
     @Override
     public void serialize(Object obj, JsonGenerator gen, SerializerProvider provider) throws IOException {
         assertHasValidJsonApiAnnotations(obj);
 
+        Traversal traversal = currentTraversal.get();
+        boolean outermost = (traversal == null);
+        Object event = null;
+        if(outermost) {
+            event = SerializationEvents.get().begin(SerializationEvents.Kind.DOCUMENT);
+            traversal = new Traversal(getTraversalLimits(provider), getIdentityMemo(provider));
+            currentTraversal.set(traversal);
+        }
+
         gen.writeStartObject();
 
         try{
-            serializeData(obj, gen);
+            int truncated = serializeData(obj, gen, provider, traversal);
 
             serializeErrors(obj, gen);
 
             serializeIncluded(obj, gen);
 
+            serializeMeta(truncated, gen);
+
         } catch (Exception e) {
             throw new IOException("Serialization failed", e);
+        } finally {
+            if(outermost) {
+                currentTraversal.remove();
+                //the generator belongs to the caller and may write to any target, e.g. a tree or a stream with other content before
+                SerializationEvents.get().end(event, obj, -1);
+            }
         }
 
         gen.writeEndObject();
     }
 
-    private String getLocation(Class clazz) {
-        JsonApiResource annotation = (JsonApiResource) clazz.getDeclaredAnnotation(JsonApiResource.class);
-        return (annotation != null)? annotation.location() : "";
+    /**
+     * Get the limits for walking the object graph. They can be specified per call as attribute, e.g. by
+     * {@code mapper.writer().withAttribute(TraversalLimits.class, limits)}, otherwise {@link TraversalLimits#defaults()} are used.
+     */
+    private static TraversalLimits getTraversalLimits(SerializerProvider provider) {
+        Object limits = (provider != null)? provider.getAttribute(TraversalLimits.class) : null;
+        return (limits instanceof TraversalLimits)? (TraversalLimits) limits : TraversalLimits.defaults();
     }
 
-    private void serializeData(Object obj, JsonGenerator gen) throws IOException, InvocationTargetException, IllegalAccessException {
+    /**
+     * Get the identifiers of the current document. They can be shared by several serializations of one document as attribute,
+     * e.g. by {@code mapper.writer().withAttribute(IdentityMemo.class, memo)}, otherwise every serialization has its own memo.
+     */
+    private static IdentityMemo getIdentityMemo(SerializerProvider provider) {
+        Object memo = (provider != null)? provider.getAttribute(IdentityMemo.class) : null;
+        return (memo instanceof IdentityMemo)? (IdentityMemo) memo : new IdentityMemo();
+    }
+
+    /**
+     * @return the number of resources that were only written as resource identifier because of the traversal limits
+     */
+    private int serializeData(Object obj, JsonGenerator gen, SerializerProvider provider, Traversal traversal) throws IOException, InvocationTargetException, IllegalAccessException {
         assertHasValidData(obj);
 
-        JsonNode dataNode;
+        int truncated = 0;
+        int pageSize = getRelationshipPageSize(provider);
+        //attribute values are written by the serializers of the resource writers, with one provider for the whole document
+        SerializerProvider attributeProvider = (attributeSerializerFactory == null)? ResourceWriter.createProvider() : provider;
+        gen.writeFieldName("data");
         if(obj instanceof Collection) { //data is array of resource objects
-            //add all serialized elements to the data node
-            ArrayNode arrayNode = mapper.createArrayNode();
+            //write all serialized elements to the data array. The writer is only resolved again if the class of the
+            //resources changes, so the resources of homogeneous collections are all written by the same writer
+            gen.writeStartArray();
+            ResourceWriter writer = null;
             for(Object resourceObject: (Collection) obj) {
-                arrayNode.add(createDataNode(resourceObject));
+                if(writer == null || writer.getResourceClass() != resourceObject.getClass()) {
+                    writer = ResourceWriter.of(resourceObject.getClass());
+                }
+                if(!writeResource(resourceObject, writer, gen, attributeProvider, traversal, pageSize)) {
+                    truncated++;
+                }
             }
-            dataNode = arrayNode;
+            gen.writeEndArray();
         }
         else { //data is single resource object
             //serialize the object
-            dataNode = createDataNode(obj);
-        }
-
-
-        gen.writeObjectField("data", dataNode);
-    }
-
-    private ObjectNode createDataNode(Object data) throws IllegalAccessException, InvocationTargetException {
-        ObjectNode node = mapper.createObjectNode();
-        node.put("type", getJsonApiType(data));
-        node.put("id", getJsonApiId(data));
-        node.set("attributes", getJsonApiAttributes(data));
-        serializeLinks(data, node);
-        serializeRelationships(data, node);
-        return node;
-    }
-
-    private void serializeLinks(Object obj, ObjectNode node) throws InvocationTargetException, IllegalAccessException {
-        Class clazz = obj.getClass();
-        ObjectNode linkNode = mapper.createObjectNode();
-        //process JsonApiLink annotations
-        for(Field field: clazz.getDeclaredFields()) {
-            field.setAccessible(true);
-            if(field.isAnnotationPresent(JsonApiLink.class)) {
-                String linkName = field.getDeclaredAnnotation(JsonApiLink.class).name();
-                String linkTarget = field.getDeclaredAnnotation(JsonApiLink.class).target();
-                if(linkName.equals("")) { //default value. no name specified
-                    field.setAccessible(true);
-                    linkName = field.getName();
-                }
-                linkNode.set(linkName, mapper.valueToTree(linkTarget));
+            if(!writeResource(obj, ResourceWriter.of(obj.getClass()), gen, attributeProvider, traversal, pageSize)) {
+                truncated++;
             }
         }
+        return truncated;
+    }
 
-        //create selflink
-        if(!getLocation(clazz).equals("")) {
-                linkNode.put("self", getLocation(clazz) + "/" + getJsonApiId(obj));
+    /**
+     * Writes a resource object, or only its resource identifier if the resource was already written in this document
+     * or is beyond the traversal limits.
+     * @return false if only the resource identifier was written
+     */
+    private boolean writeResource(Object data, ResourceWriter writer, JsonGenerator gen, SerializerProvider attributeProvider, Traversal traversal, int pageSize) throws IOException, IllegalAccessException, InvocationTargetException {
+        if(!traversal.enterResource(data)) {
+            writeResourceIdentifier(data, gen, traversal.getMemo());
+            return false;
         }
-        if(linkNode.size() > 0) {
-            node.set("links", linkNode);
+        try {
+            writer.writeStart(data, gen);
+            serializeAttributes(data, writer, gen, attributeProvider);
+            writer.writeLinks(data, gen);
+            serializeRelationships(data, writer.getMetadata(), gen, traversal, pageSize);
+            gen.writeEndObject();
+        } finally {
+            traversal.exit(data);
         }
+        return true;
     }
 
-    private static void serializeRelationships(Object obj, ObjectNode node) throws IllegalAccessException, InvocationTargetException {
-
-        ObjectNode relationshipsNode = createRelationshipsNode(obj);
-
-        if(relationshipsNode.size() > 0) {
-            node.set("relationships", relationshipsNode);
-        }
+    /**
+     * @return the page size of to-many relationships passed as attribute, or -1 if relationships are not paged
+     */
+    private static int getRelationshipPageSize(SerializerProvider provider) {
+        Object pageSize = (provider != null)? provider.getAttribute(RELATIONSHIP_PAGE_SIZE) : null;
+        return (pageSize instanceof Integer)? (Integer) pageSize : -1;
     }
 
-    private static ObjectNode createRelationshipsNode(Object obj) throws IllegalAccessException, InvocationTargetException {
-        ObjectNode relationshipsNode = mapper.createObjectNode();
-        Class clazz = obj.getClass();
+    /**
+     * Writes the relationships of a resource. To-many relationships with more resources than their page size
+     * only contain the first page as data, followed by related and next links and the total count as meta.
+     */
+    private static void serializeRelationships(Object obj, ResourceMetadata metadata, JsonGenerator gen, Traversal traversal, int defaultPageSize) throws IOException, IllegalAccessException, InvocationTargetException {
+        List<Relationship> relationships = metadata.getRelationships();
+        if(relationships.isEmpty()) {
+            return;
+        }
 
-        for(Field field: clazz.getDeclaredFields()) {
-            field.setAccessible(true);
-            if(field.isAnnotationPresent(JsonApiRelationship.class)) {
-                String name = field.getDeclaredAnnotation(JsonApiRelationship.class).name();
-                if(name.equals("")) {
-                    name = field.getName();
+        gen.writeObjectFieldStart("relationships");
+        for(Relationship relationship: relationships) {
+            Object related = relationship.get(obj);
+            int pageSize = (relationship.getPageSize() >= 0)? relationship.getPageSize() : defaultPageSize;
+            boolean paged = pageSize >= 0 && related instanceof Collection && ((Collection<?>) related).size() > pageSize;
+
+            gen.writeObjectFieldStart(relationship.getName());
+            if(paged) {
+                //the data is written first, the next page starts after the identifiers that were actually written
+                gen.writeFieldName("data");
+                int size = ((Collection<?>) related).size();
+                int written = size - writeRelationshipData(related, gen, traversal, pageSize);
+                String resourcePath = getResourcePath(obj, metadata);
+                gen.writeObjectFieldStart("links");
+                if(!relationship.getLocation().equals("")) {
+                    gen.writeStringField("self", relationship.getLocation());
                 }
-                ObjectNode otherNode = mapper.createObjectNode();
-                Object other = field.get(obj);
-                String location = field.getDeclaredAnnotation(JsonApiRelationship.class).location();
-                if(!location.equals("")) {
-                    ObjectNode linkNode = mapper.createObjectNode();
-                    linkNode.set("self", mapper.valueToTree(location));
-                    otherNode.set("links", linkNode);
+                gen.writeStringField("related", resourcePath + "/" + relationship.getName());
+                //brackets are encoded, so the links are valid URIs
+                gen.writeStringField("next", resourcePath + "/relationships/" + relationship.getName()
+                        + "?page%5Boffset%5D=" + written + "&page%5Blimit%5D=" + pageSize);
+                gen.writeEndObject();
+                gen.writeObjectFieldStart("meta");
+                gen.writeNumberField("count", size);
+                //identifiers of this page left out by the traversal limits
+                int omitted = Math.min(pageSize, size) - written;
+                if(omitted > 0) {
+                    gen.writeBooleanField("truncated", true);
+                    gen.writeNumberField("omitted", omitted);
                 }
-                JsonNode otherDataNode = createRelationshipDataNode(other);
-                otherNode.set("data", otherDataNode);
-                relationshipsNode.set(name, otherNode);
+                gen.writeEndObject();
+                gen.writeEndObject();
+                continue;
+            }
+            if(!relationship.getLocation().equals("")) {
+                gen.writeObjectFieldStart("links");
+                gen.writeStringField("self", relationship.getLocation());
+                gen.writeEndObject();
             }
+            gen.writeFieldName("data");
+            int omitted = writeRelationshipData(related, gen, traversal);
+            if(omitted > 0) {
+                gen.writeObjectFieldStart("meta");
+                gen.writeBooleanField("truncated", true);
+                gen.writeNumberField("omitted", omitted);
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
         }
-        return relationshipsNode;
+        gen.writeEndObject();
     }
 
     /**
-     * Get attributes of a jsonAPI resource object
-     * (i.e. public fields, @JsonProperty annotated fields, getter methods, @JsonProperty annotated methods).
-     * Fields or methods annotated with @JsonApiId are ignored, since they are serialized elsewhere.
-     * @param data the resource object
-     * @return a JsonNode containing all visible attributes except jsonAPI id
-     * @throws IllegalAccessException if the value of a field cannot be determined
-     * @throws InvocationTargetException if the invocation of a attribute method fails
+     * @return the path of a resource, below its location or its type if it has no location
      */
-    private JsonNode getJsonApiAttributes(Object data) throws IllegalAccessException, InvocationTargetException {
-        ObjectNode node = mapper.createObjectNode();
-        //serialize fields
-        for(Field field: data.getClass().getDeclaredFields()) {
-            if(field.isAnnotationPresent(JsonApiId.class) ) {
-                continue; //do not serialize id twice.
-            } else if(field.isAnnotationPresent(JsonProperty.class)) {
-                field.setAccessible(true);
-                String fieldName = field.getAnnotation(JsonProperty.class).value();
-                node.set(fieldName, mapper.valueToTree(field.get(data)));
-            } else if(!Modifier.isPublic(field.getModifiers())) {
-                continue; //do not serialize inaccessible fields without JsonProperty-annotation.
-            } else {
-                node.set(field.getName(), mapper.valueToTree(field.get(data)));
-            }
+    private static String getResourcePath(Object obj, ResourceMetadata metadata) throws IllegalAccessException, InvocationTargetException {
+        String location = metadata.getLocation().equals("")? metadata.getType() : metadata.getLocation();
+        if(location.endsWith("/")) {
+            location = location.substring(0, location.length() - 1);
         }
-        //serialize getters and @JsonProperty annotated methods
-        for(Method method: data.getClass().getDeclaredMethods()) {
-            method.setAccessible(true);
-            if(method.isAnnotationPresent(JsonProperty.class)) {
-                if(!isGettable(method)) {
-                    throw new JsonApiSerializationException("@JsonProperty annotated method needs to have a non void return value" +
-                            "and no parameters.");
-                }
-                String attributeName = method.getDeclaredAnnotation(JsonProperty.class).value();
-                if(!node.has(attributeName)) {
-                    node.set(attributeName, mapper.valueToTree(method.invoke(data)));
-                }
-            }
-            if(isGetter(method)) {
-                if(!node.has(getterAttribute(method))) {
-                    node.set(getterAttribute(method), mapper.valueToTree(method.invoke(data)));
-                }
-            }
-        }
-        return node;
+        return location + "/" + metadata.getIdString(obj);
     }
 
-    private String getterAttribute(Method method) {
-        //remove the leading "get" and lowercase first letter to match attribute name conventions
-        char[] chars = method.getName().substring(3).toCharArray();
-        chars[0] = Character.toLowerCase(chars[0]);
-        return new String(chars);
+    private void serializeAttributes(Object data, ResourceWriter writer, JsonGenerator gen, SerializerProvider provider) throws IOException, IllegalAccessException, InvocationTargetException {
+        if(attributeSerializerFactory == null) {
+            writer.writeAttributes(data, gen, provider);
+            return;
+        }
+        gen.writeObjectFieldStart("attributes");
+        getAttributeSerializer(data.getClass(), provider).serialize(data, gen, provider);
+        gen.writeEndObject();
     }
 
-    private boolean isGetter(Method method) {
-        return method.getName().startsWith("get")
-                && Modifier.isPublic(method.getModifiers())
-                && isGettable(method);
+    /**
+     * Get the bean serializer writing the attribute members of a resource class, created once per class.
+     */
+    private JsonSerializer<Object> getAttributeSerializer(Class<?> resourceClass, SerializerProvider provider) throws JsonMappingException {
+        JsonSerializer<Object> serializer = attributeSerializers.get(resourceClass);
+        if(serializer == null) {
+            serializer = attributeSerializerFactory.createAttributeSerializer(provider, resourceClass);
+            attributeSerializers.putIfAbsent(resourceClass, serializer);
+        }
+        return serializer;
     }
 
     private void serializeErrors(Object doc, JsonGenerator gen) {
@@ -222,6 +273,15 @@ public class JsonApiSerializer<T> extends StdSerializer<Object> {
         //later
     }
 
+    private void serializeMeta(int truncated, JsonGenerator gen) throws IOException {
+        if(truncated > 0) {
+            gen.writeObjectFieldStart("meta");
+            gen.writeBooleanField("truncated", true);
+            gen.writeNumberField("identifiersOnly", truncated);
+            gen.writeEndObject();
+        }
+    }
+
     private void assertHasValidData(Object data) {
         //later
     }
@@ -0,0 +1,184 @@
+package serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import util.ResourceMetadata;
+import util.ResourceMetadata.Attribute;
+import util.ResourceMetadata.Link;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+/**
+ * Writes the type, id, attributes and links of the resource objects of one class.
+ * All names are pre-encoded and every attribute has its own serializer, resolved on first use, so the resources
+ * of a collection are written in a loop over fixed columns, without building trees or looking anything up per resource.
+ */
+final class ResourceWriter {
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString ATTRIBUTES = new SerializedString("attributes");
+    private static final SerializableString LINKS = new SerializedString("links");
+    private static final SerializableString SELF = new SerializedString("self");
+
+    //attribute values are written like jackson's default mapper writes them, without the serializers of the caller
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Class<?> resourceClass;
+    private final ResourceMetadata metadata;
+    private final Attribute[] attributes;
+    private final SerializableString[] attributeNames;
+    private final Column[] columns;
+    private final SerializableString[] linkNames;
+    private final String[] linkTargets;
+    //index of the link replaced by the self link, -1 if the self link is written after all other links
+    private final int selfLinkIndex;
+
+    private ResourceWriter(ResourceMetadata metadata) {
+        this.resourceClass = metadata.getResourceClass();
+        this.metadata = metadata;
+
+        List<Attribute> attributeList = metadata.getAttributes();
+        attributes = attributeList.toArray(new Attribute[0]);
+        attributeNames = new SerializableString[attributes.length];
+        columns = new Column[attributes.length];
+        for(int i = 0; i < attributes.length; i++) {
+            attributeNames[i] = new SerializedString(attributes[i].getName());
+            columns[i] = new Column(mapper.constructType(attributes[i].getGenericType()));
+        }
+
+        List<Link> links = metadata.getLinks();
+        linkNames = new SerializableString[links.size()];
+        linkTargets = new String[links.size()];
+        int self = -1;
+        for(int i = 0; i < linkNames.length; i++) {
+            linkNames[i] = new SerializedString(links.get(i).getName());
+            linkTargets[i] = links.get(i).getTarget();
+            if(links.get(i).getName().equals("self")) {
+                self = i;
+            }
+        }
+        selfLinkIndex = self;
+    }
+
+    /**
+     * @return the writer of the resource class, kept with its {@link ResourceMetadata}
+     */
+    static ResourceWriter of(Class<?> resourceClass) {
+        return ResourceMetadata.of(resourceClass).derive(ResourceWriter.class, ResourceWriter::new);
+    }
+
+    /**
+     * Creates the provider writing the attribute values of one document. Providers hold the state of a single
+     * serialization, the serializers they resolve are shared.
+     */
+    static SerializerProvider createProvider() {
+        return mapper.getSerializerProviderInstance();
+    }
+
+    Class<?> getResourceClass() {
+        return resourceClass;
+    }
+
+    ResourceMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Writes the start of the resource object with its type and id.
+     */
+    void writeStart(Object resource, JsonGenerator gen) throws IOException, IllegalAccessException, InvocationTargetException {
+        gen.writeStartObject();
+        gen.writeFieldName(TYPE);
+        gen.writeString(metadata.getSerializedType());
+        gen.writeFieldName(ID);
+        metadata.writeId(resource, gen);
+    }
+
+    /**
+     * Writes the attributes object.
+     * @param provider the provider of the document, see {@link #createProvider()}
+     */
+    void writeAttributes(Object resource, JsonGenerator gen, SerializerProvider provider) throws IOException, IllegalAccessException, InvocationTargetException {
+        gen.writeFieldName(ATTRIBUTES);
+        gen.writeStartObject();
+        for(int i = 0; i < attributes.length; i++) {
+            gen.writeFieldName(attributeNames[i]);
+            Object value = attributes[i].get(resource);
+            if(value == null) {
+                gen.writeNull();
+            } else {
+                columns[i].serializerFor(value.getClass(), provider).serialize(value, gen, provider);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the links of the @JsonApiLink annotations and the self link of resources with location.
+     * A link named self is replaced by the self link.
+     */
+    void writeLinks(Object resource, JsonGenerator gen) throws IOException, IllegalAccessException, InvocationTargetException {
+        boolean hasSelfLink = !metadata.getLocation().equals("");
+        if(linkNames.length == 0 && !hasSelfLink) {
+            return;
+        }
+        gen.writeFieldName(LINKS);
+        gen.writeStartObject();
+        for(int i = 0; i < linkNames.length; i++) {
+            gen.writeFieldName(linkNames[i]);
+            if(i == selfLinkIndex && hasSelfLink) {
+                gen.writeString(metadata.getLocation() + "/" + metadata.getIdString(resource));
+            } else {
+                gen.writeString(linkTargets[i]);
+            }
+        }
+        if(hasSelfLink && selfLinkIndex < 0) {
+            gen.writeFieldName(SELF);
+            gen.writeString(metadata.getLocation() + "/" + metadata.getIdString(resource));
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * The serializers of an attribute. The serializer of the declared type is only used if no subclass could hold
+     * other members, otherwise the serializers of the runtime classes are cached like jackson caches them for properties.
+     */
+    private static final class Column {
+        private final JavaType type;
+        private volatile JsonSerializer<Object> declaredSerializer;
+        private volatile PropertySerializerMap runtimeSerializers = PropertySerializerMap.emptyForProperties();
+
+        private Column(JavaType type) {
+            this.type = type;
+        }
+
+        private JsonSerializer<Object> serializerFor(Class<?> valueClass, SerializerProvider provider) throws JsonMappingException {
+            if(type.isFinal()) {
+                JsonSerializer<Object> serializer = declaredSerializer;
+                if(serializer == null) {
+                    serializer = provider.findTypedValueSerializer(type, true, null);
+                    declaredSerializer = serializer;
+                }
+                return serializer;
+            }
+            PropertySerializerMap serializers = runtimeSerializers;
+            JsonSerializer<Object> serializer = serializers.serializerFor(valueClass);
+            if(serializer == null) {
+                PropertySerializerMap.SerializerAndMapResult result = serializers.findAndAddRootValueSerializer(valueClass, provider);
+                //concurrent additions may be lost, their serializers are found again on the next miss
+                runtimeSerializers = result.map;
+                serializer = result.serializer;
+            }
+            return serializer;
+        }
+    }
+}
@@ -6,37 +6,95 @@ import exceptions.JsonApiSerializationException;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Assert {
+    //verdicts by class, so the annotations of every class are only inspected once and the report of invalid classes
+    //is built once. Invalid verdicts are dropped when an IdCodec is registered, which may make their class valid
+    private static final Map<Class<?>, Verdict> verdicts = new ConcurrentHashMap<>();
 
     public static void assertHasValidJsonApiAnnotations(Collection<?> collection) {
         Objects.requireNonNull(collection);
-        collection.forEach(Assert::assertHasValidJsonApiAnnotations);
+        Class<?> lastValid = null;
+        for(Object element: collection) {
+            Objects.requireNonNull(element);
+            //elements of homogeneous collections are validated with a single reference comparison
+            if(element.getClass() != lastValid) {
+                assertHasValidJsonApiAnnotations(element);
+                if(!(element instanceof Collection)) {
+                    lastValid = element.getClass();
+                }
+            }
+        }
     }
 
     public static void assertHasValidJsonApiAnnotations(Object obj) {
         Objects.requireNonNull(obj);
         //collections
         if (obj instanceof Collection) {
-            ((Collection) obj).forEach(Assert::assertHasValidJsonApiAnnotations);
+            assertHasValidJsonApiAnnotations((Collection<?>) obj);
             return;
         }
-        if (!obj.getClass().isAnnotationPresent(JsonApiResource.class)) {
-            throw new JsonApiSerializationException("Class needs to be annotated with JsonApiResource annotation");
-        }
-        for (Field field : obj.getClass().getDeclaredFields()) {
-            if (field.isAnnotationPresent(JsonApiId.class)) {
-                return;
+        assertHasValidJsonApiAnnotations(obj.getClass());
+    }
+
+    /**
+     * Asserts that an object can be used as value of a relationship,
+     * i.e. it is a valid jsonAPI resource, a {@link ResourceIdentifier} or a collection of them.
+     * @param obj the related object
+     */
+    public static void assertIsValidRelationship(Object obj) {
+        Objects.requireNonNull(obj);
+        if (obj instanceof Collection) {
+            for (Object element : (Collection<?>) obj) {
+                assertIsValidRelationship(element);
             }
+        } else if (!(obj instanceof ResourceIdentifier)) {
+            assertHasValidJsonApiAnnotations(obj.getClass());
         }
-        for (Method method : obj.getClass().getDeclaredMethods()) {
-            if (method.isAnnotationPresent(JsonApiId.class) && isGettable(method)) {
-                return;
+    }
+
+    /**
+     * Asserts that a class is a valid jsonAPI resource class.
+     * Classes are only inspected on first use, afterwards the cached verdict is used.
+     * @param clazz the class to check
+     * @throws JsonApiSerializationException describing all problems of the class, if it is no valid jsonAPI resource
+     */
+    public static void assertHasValidJsonApiAnnotations(Class<?> clazz) {
+        Verdict verdict = verdicts.get(clazz);
+        if(verdict == null) {
+            verdict = validate(clazz);
+            Verdict concurrent = verdicts.putIfAbsent(clazz, verdict);
+            if(concurrent != null) {
+                verdict = concurrent;
             }
         }
-        throw new JsonApiSerializationException("At least one field or no-arg non-void method needs to be annotated with JsonApiId annotation");
+        if(verdict != Verdict.VALID) {
+            throw new JsonApiSerializationException(verdict.error);
+        }
+    }
+
+    /**
+     * Drops the verdicts of invalid classes, so they are inspected again on their next use.
+     * Called when an IdCodec is registered, which may make classes with that id type valid.
+     */
+    static void forgetInvalidVerdicts() {
+        verdicts.values().removeIf(verdict -> verdict != Verdict.VALID);
+    }
+
+    /**
+     * Marks a class as valid jsonAPI resource without inspecting it at runtime,
+     * e.g. because it was already verified at build time.
+     * Has no effect if the class was validated before.
+     * @param clazz the trusted class
+     */
+    public static void trust(Class<?> clazz) {
+        verdicts.putIfAbsent(clazz, Verdict.VALID);
     }
 
     public static boolean isGettable(Method method) {
@@ -44,4 +102,46 @@ public class Assert {
                 && !method.getReturnType().equals(Void.TYPE);
     }
 
+    private static Verdict validate(Class<?> clazz) {
+        List<String> errors = new ArrayList<>();
+        if (!clazz.isAnnotationPresent(JsonApiResource.class)) {
+            errors.add("Class needs to be annotated with JsonApiResource annotation");
+        }
+        Class<?> idType = findIdType(clazz);
+        if (idType == null) {
+            errors.add("At least one field or no-arg non-void method needs to be annotated with JsonApiId annotation");
+        } else if (IdCodecs.forType(idType) == null) {
+            errors.add("No IdCodec registered for JsonApiId type " + idType.getName());
+        }
+
+        if (errors.isEmpty()) {
+            return Verdict.VALID;
+        }
+        return new Verdict(clazz.getName() + " is no valid jsonAPI resource: " + String.join(", ", errors));
+    }
+
+    private static Class<?> findIdType(Class<?> clazz) {
+        DeclarationOrder order = DeclarationOrder.of(clazz);
+        for (Field field : order.fields(clazz)) {
+            if (field.isAnnotationPresent(JsonApiId.class)) {
+                return field.getType();
+            }
+        }
+        for (Method method : order.methods(clazz)) {
+            if (method.isAnnotationPresent(JsonApiId.class) && isGettable(method)) {
+                return method.getReturnType();
+            }
+        }
+        return null;
+    }
+
+    private static final class Verdict {
+        private static final Verdict VALID = new Verdict(null);
+
+        private final String error;
+
+        private Verdict(String error) {
+            this.error = error;
+        }
+    }
 }
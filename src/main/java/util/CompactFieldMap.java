@@ -0,0 +1,344 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The fields of an object node, stored as an array of values in insertion order. The field names are kept by a shared
+ * {@link Shape}, so all objects with the same fields in the same order, e.g. the resource objects of one type,
+ * share a single array of names instead of holding one hash map entry per field.
+ * Objects with many fields fall back to a {@link LinkedHashMap}. Like the hash map, this map is not thread-safe.
+ */
+final class CompactFieldMap extends AbstractMap<String, JsonNode> {
+    //objects with more fields are rare in jsonAPI documents, e.g. maps as attributes, and are looked up by hash
+    static final int MAX_COMPACT_FIELDS = 16;
+
+    private Shape shape = Shape.EMPTY;
+    private JsonNode[] values;
+    //set once the object outgrows the compact representation
+    private Map<String, JsonNode> overflow;
+    private int modifications;
+
+    @Override
+    public int size() {
+        return (overflow != null)? overflow.size() : shape.keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return (overflow != null)? overflow.containsKey(key) : shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public JsonNode get(Object key) {
+        if(overflow != null) {
+            return overflow.get(key);
+        }
+        int index = shape.indexOf(key);
+        return (index >= 0)? values[index] : null;
+    }
+
+    @Override
+    public JsonNode put(String key, JsonNode value) {
+        if(overflow != null) {
+            return overflow.put(key, value);
+        }
+        int index = shape.indexOf(key);
+        if(index >= 0) {
+            JsonNode previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        int size = shape.keys.length;
+        if(size == MAX_COMPACT_FIELDS) {
+            overflow = new LinkedHashMap<>();
+            for(int i = 0; i < size; i++) {
+                overflow.put(shape.keys[i], values[i]);
+            }
+            shape = Shape.EMPTY;
+            values = null;
+            modifications++;
+            return overflow.put(key, value);
+        }
+        if(values == null) {
+            values = new JsonNode[4];
+        } else if(values.length == size) {
+            values = Arrays.copyOf(values, Math.min(size * 2, MAX_COMPACT_FIELDS));
+        }
+        shape = shape.with(key);
+        values[size] = value;
+        modifications++;
+        return null;
+    }
+
+    @Override
+    public JsonNode remove(Object key) {
+        if(overflow != null) {
+            return overflow.remove(key);
+        }
+        int index = shape.indexOf(key);
+        if(index < 0) {
+            return null;
+        }
+        JsonNode previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        overflow = null;
+        shape = Shape.EMPTY;
+        values = null;
+        modifications++;
+    }
+
+    @Override
+    public Set<Entry<String, JsonNode>> entrySet() {
+        if(overflow != null) {
+            return overflow.entrySet();
+        }
+        return new AbstractSet<Entry<String, JsonNode>>() {
+            @Override
+            public Iterator<Entry<String, JsonNode>> iterator() {
+                return (overflow != null)? overflow.entrySet().iterator() : new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return CompactFieldMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Removes a field, moving the object to the shape of its remaining fields.
+     */
+    private void removeAt(int index) {
+        String[] keys = shape.keys;
+        Shape remaining = Shape.EMPTY;
+        for(int i = 0; i < keys.length; i++) {
+            if(i != index) {
+                remaining = remaining.with(keys[i]);
+            }
+        }
+        System.arraycopy(values, index + 1, values, index, keys.length - index - 1);
+        values[keys.length - 1] = null;
+        shape = remaining;
+        modifications++;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, JsonNode>> {
+        private int next;
+        private int last = -1;
+        private int expectedModifications = modifications;
+
+        @Override
+        public boolean hasNext() {
+            return next < shape.keys.length;
+        }
+
+        @Override
+        public Entry<String, JsonNode> next() {
+            if(expectedModifications != modifications) {
+                throw new ConcurrentModificationException();
+            }
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Field(last);
+        }
+
+        @Override
+        public void remove() {
+            if(last < 0) {
+                throw new IllegalStateException();
+            }
+            if(expectedModifications != modifications) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModifications = modifications;
+        }
+    }
+
+    /**
+     * A field of this map. Setting its value writes through, like the entries of a hash map.
+     */
+    private final class Field implements Entry<String, JsonNode> {
+        private final String key;
+        private final int index;
+
+        private Field(int index) {
+            this.key = shape.keys[index];
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public JsonNode getValue() {
+            return values[index];
+        }
+
+        @Override
+        public JsonNode setValue(JsonNode value) {
+            JsonNode previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return key.equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+    }
+
+    /**
+     * The field names of objects, in insertion order. Shapes form a tree shared by all maps: adding a field moves a map
+     * to the child shape for that name, which is created once. Children are only weakly referenced by their parent,
+     * so the shapes of documents that are gone, e.g. with data-dependent field names, are reclaimed by the garbage
+     * collector. Maps keep the path to their shape alive. The number of live shared shapes is bounded per tree,
+     * later shapes are created per object until enough shared shapes have been reclaimed.
+     */
+    static final class Shape {
+        static final int MAX_SHARED_SHAPES = 4096;
+        static final Shape EMPTY = root(MAX_SHARED_SHAPES);
+
+        final String[] keys;
+        //keeps the path of a shared shape alive as long as the shape is used
+        private final Shape parent;
+        //null for shapes that are not shared
+        final Map<String, ShapeRef> transitions;
+        private final Tree tree;
+
+        private Shape(String[] keys, Shape parent, Tree tree) {
+            this.keys = keys;
+            this.parent = parent;
+            this.transitions = (tree != null)? new ConcurrentHashMap<>(4) : null;
+            this.tree = tree;
+        }
+
+        /**
+         * Creates the empty shape of a separate tree. All maps start at {@link #EMPTY}, other trees are only used by tests.
+         * @param maxSharedShapes the number of live shared shapes of the tree
+         */
+        static Shape root(int maxSharedShapes) {
+            return new Shape(new String[0], null, new Tree(maxSharedShapes));
+        }
+
+        Shape with(String key) {
+            if(transitions != null) {
+                Shape next = get(transitions.get(key));
+                if(next != null) {
+                    return next;
+                }
+            }
+            String[] nextKeys = Arrays.copyOf(keys, keys.length + 1);
+            nextKeys[keys.length] = key;
+            if(transitions == null) {
+                return new Shape(nextKeys, null, null);
+            }
+            tree.purge();
+            if(tree.sharedShapes.get() >= tree.maxSharedShapes) {
+                return new Shape(nextKeys, null, null);
+            }
+            synchronized(this) {
+                Shape next = get(transitions.get(key));
+                if(next == null) {
+                    next = new Shape(nextKeys, this, tree);
+                    //a collected child still in the map is replaced, its reference is purged later
+                    transitions.put(key, new ShapeRef(next, this, key));
+                    tree.sharedShapes.incrementAndGet();
+                }
+                return next;
+            }
+        }
+
+        int indexOf(Object key) {
+            //field names are mostly the same instances, e.g. the names of the serializers, so identity is checked first
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i] == key) {
+                    return i;
+                }
+            }
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        boolean isShared() {
+            return transitions != null;
+        }
+
+        private static Shape get(ShapeRef ref) {
+            return (ref != null)? ref.get() : null;
+        }
+    }
+
+    /**
+     * The budget of live shared shapes of one shape tree and the queue of its collected shapes.
+     */
+    private static final class Tree {
+        private final int maxSharedShapes;
+        private final AtomicInteger sharedShapes = new AtomicInteger();
+        private final ReferenceQueue<Shape> collected = new ReferenceQueue<>();
+
+        private Tree(int maxSharedShapes) {
+            this.maxSharedShapes = maxSharedShapes;
+        }
+
+        /**
+         * Removes the transitions to collected shapes.
+         */
+        private void purge() {
+            ShapeRef ref;
+            while((ref = (ShapeRef) collected.poll()) != null) {
+                ref.owner.transitions.remove(ref.key, ref);
+                sharedShapes.decrementAndGet();
+            }
+        }
+    }
+
+    static final class ShapeRef extends WeakReference<Shape> {
+        private final Shape owner;
+        private final String key;
+
+        private ShapeRef(Shape shape, Shape owner, String key) {
+            super(shape, owner.tree.collected);
+            this.owner = owner;
+            this.key = key;
+        }
+    }
+}
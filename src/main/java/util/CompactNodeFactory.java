@@ -0,0 +1,32 @@
+package util;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Creates object nodes whose fields are stored in shared-shape arrays instead of hash maps, see {@link CompactFieldMap}.
+ * Documents held in memory, e.g. while a response is built, consist of many small objects with the same fields:
+ * the resource objects of one type, their attributes, links and relationships. Their fields only take a reference each,
+ * the field names are shared by all objects of the same shape.
+ * Usage: {@code mapper.setNodeFactory(CompactNodeFactory.get())}.
+ */
+public final class CompactNodeFactory extends JsonNodeFactory {
+    private static final long serialVersionUID = 1L;
+    private static final CompactNodeFactory INSTANCE = new CompactNodeFactory();
+
+    private CompactNodeFactory() {
+    }
+
+    public static CompactNodeFactory get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public ObjectNode objectNode() {
+        return new ObjectNode(this, new CompactFieldMap());
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
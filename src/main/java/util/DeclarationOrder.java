@@ -0,0 +1,147 @@
+package util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Returns the declared fields and methods of a class in the order they appear in its class file,
+ * i.e. the order of the source code for classes compiled by javac.
+ * The reflection API does not specify any order, so it may differ between JVMs and runs.
+ * If the class file cannot be read, members are sorted by name, so the order is still deterministic.
+ */
+final class DeclarationOrder {
+    private final Map<String, Integer> fieldIndices = new HashMap<>();
+    private final Map<String, Integer> methodIndices = new HashMap<>();
+
+    private DeclarationOrder() {
+    }
+
+    static DeclarationOrder of(Class<?> clazz) {
+        DeclarationOrder order = new DeclarationOrder();
+        String classFile = clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class";
+        try(InputStream input = clazz.getResourceAsStream(classFile)) {
+            if(input != null) {
+                order.read(new DataInputStream(input));
+            }
+        } catch (IOException | RuntimeException e) {
+            //unreadable class files fall back to ordering by name
+            order.fieldIndices.clear();
+            order.methodIndices.clear();
+        }
+        return order;
+    }
+
+    Field[] fields(Class<?> clazz) {
+        Field[] fields = clazz.getDeclaredFields();
+        Arrays.sort(fields, new MemberComparator(fieldIndices));
+        return fields;
+    }
+
+    Method[] methods(Class<?> clazz) {
+        Method[] methods = clazz.getDeclaredMethods();
+        Comparator<Method> byPosition = new MemberComparator(methodIndices)::compare;
+        //overloads share a name, they are ordered by their parameters
+        Arrays.sort(methods, byPosition.thenComparing(method -> Arrays.toString(method.getParameterTypes())));
+        return methods;
+    }
+
+    private void read(DataInputStream input) throws IOException {
+        if(input.readInt() != 0xCAFEBABE) {
+            throw new IOException("No class file");
+        }
+        input.readUnsignedShort(); //minor version
+        input.readUnsignedShort(); //major version
+        String[] utf8 = readConstantPool(input);
+        input.readUnsignedShort(); //access flags
+        input.readUnsignedShort(); //this class
+        input.readUnsignedShort(); //super class
+        skip(input, 2 * input.readUnsignedShort()); //interfaces
+        readMembers(input, utf8, fieldIndices);
+        readMembers(input, utf8, methodIndices);
+    }
+
+    private static String[] readConstantPool(DataInputStream input) throws IOException {
+        int count = input.readUnsignedShort();
+        String[] utf8 = new String[count];
+        for(int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            switch(tag) {
+                case 1: //Utf8
+                    utf8[i] = input.readUTF();
+                    break;
+                case 3: case 4: //Integer, Float
+                case 9: case 10: case 11: case 12: //Fieldref, Methodref, InterfaceMethodref, NameAndType
+                case 17: case 18: //Dynamic, InvokeDynamic
+                    skip(input, 4);
+                    break;
+                case 5: case 6: //Long and Double take two entries
+                    skip(input, 8);
+                    i++;
+                    break;
+                case 7: case 8: case 16: case 19: case 20: //Class, String, MethodType, Module, Package
+                    skip(input, 2);
+                    break;
+                case 15: //MethodHandle
+                    skip(input, 3);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return utf8;
+    }
+
+    private static void readMembers(DataInputStream input, String[] utf8, Map<String, Integer> indices) throws IOException {
+        int count = input.readUnsignedShort();
+        for(int i = 0; i < count; i++) {
+            input.readUnsignedShort(); //access flags
+            String name = utf8[input.readUnsignedShort()];
+            input.readUnsignedShort(); //descriptor
+            indices.putIfAbsent(name, i);
+            int attributes = input.readUnsignedShort();
+            for(int a = 0; a < attributes; a++) {
+                input.readUnsignedShort(); //attribute name
+                skip(input, input.readInt());
+            }
+        }
+    }
+
+    private static void skip(DataInputStream input, int bytes) throws IOException {
+        while(bytes > 0) {
+            int skipped = input.skipBytes(bytes);
+            if(skipped <= 0) {
+                throw new IOException("Unexpected end of class file");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /**
+     * Orders members by their position in the class file, members missing in the class file by name after all others.
+     */
+    private static final class MemberComparator implements Comparator<Member> {
+        private final Map<String, Integer> indices;
+
+        private MemberComparator(Map<String, Integer> indices) {
+            this.indices = indices;
+        }
+
+        private int index(Member member) {
+            return indices.getOrDefault(member.getName(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int compare(Member first, Member second) {
+            int result = Integer.compare(index(first), index(second));
+            return (result != 0)? result : first.getName().compareTo(second.getName());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Converts jsonAPI ids of a specific java type from and to their json representation.
+ * Since jsonAPI ids are always json strings, implementations should write the id to the generator directly
+ * instead of formatting a temporary String first.
+ * Codecs for custom id types can be registered at {@link IdCodecs#register(Class, IdCodec)}.
+ * @param <T> the java type of the id
+ */
+public interface IdCodec<T> {
+
+    /**
+     * Writes the id as json string value.
+     * @param id the id, never null
+     * @param gen the generator the id is written to
+     * @throws IOException if writing to the generator fails
+     */
+    void write(T id, JsonGenerator gen) throws IOException;
+
+    /**
+     * Formats the id as String, e.g. for generating links.
+     * @param id the id, never null
+     * @return the string representation of the id
+     */
+    String format(T id);
+
+    /**
+     * Parses the id of an incoming jsonAPI document.
+     * @param id the string value of the id member
+     * @return the parsed id
+     * @throws IllegalArgumentException if the value is no valid id of this type
+     */
+    T parse(String id);
+}
@@ -0,0 +1,143 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.NumberOutput;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link IdCodec}s that are used for @JsonApiId annotated fields and methods.
+ * Codecs for String, long, int and UUID ids are registered by default.
+ */
+public class IdCodecs {
+    private static final Map<Class<?>, IdCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    //scratch buffer for formatting numeric and UUID ids without allocating temporary Strings
+    private static final ThreadLocal<char[]> buffer = ThreadLocal.withInitial(() -> new char[36]);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public static final IdCodec<String> STRING = new IdCodec<String>() {
+        @Override
+        public void write(String id, JsonGenerator gen) throws IOException {
+            gen.writeString(id);
+        }
+
+        @Override
+        public String format(String id) {
+            return id;
+        }
+
+        @Override
+        public String parse(String id) {
+            return id;
+        }
+    };
+
+    public static final IdCodec<Long> LONG = new IdCodec<Long>() {
+        @Override
+        public void write(Long id, JsonGenerator gen) throws IOException {
+            char[] chars = buffer.get();
+            gen.writeString(chars, 0, NumberOutput.outputLong(id, chars, 0));
+        }
+
+        @Override
+        public String format(Long id) {
+            return Long.toString(id);
+        }
+
+        @Override
+        public Long parse(String id) {
+            return Long.valueOf(id);
+        }
+    };
+
+    public static final IdCodec<Integer> INTEGER = new IdCodec<Integer>() {
+        @Override
+        public void write(Integer id, JsonGenerator gen) throws IOException {
+            char[] chars = buffer.get();
+            gen.writeString(chars, 0, NumberOutput.outputInt(id, chars, 0));
+        }
+
+        @Override
+        public String format(Integer id) {
+            return Integer.toString(id);
+        }
+
+        @Override
+        public Integer parse(String id) {
+            return Integer.valueOf(id);
+        }
+    };
+
+    public static final IdCodec<UUID> UUID_CODEC = new IdCodec<UUID>() {
+        @Override
+        public void write(UUID id, JsonGenerator gen) throws IOException {
+            char[] chars = buffer.get();
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+            //canonical 8-4-4-4-12 representation
+            appendHex(chars, 0, msb >>> 32, 8);
+            chars[8] = '-';
+            appendHex(chars, 9, msb >>> 16, 4);
+            chars[13] = '-';
+            appendHex(chars, 14, msb, 4);
+            chars[18] = '-';
+            appendHex(chars, 19, lsb >>> 48, 4);
+            chars[23] = '-';
+            appendHex(chars, 24, lsb, 12);
+            gen.writeString(chars, 0, 36);
+        }
+
+        @Override
+        public String format(UUID id) {
+            return id.toString();
+        }
+
+        @Override
+        public UUID parse(String id) {
+            return UUID.fromString(id);
+        }
+    };
+
+    static {
+        register(String.class, STRING);
+        register(Long.class, LONG);
+        register(Long.TYPE, LONG);
+        register(Integer.class, INTEGER);
+        register(Integer.TYPE, INTEGER);
+        register(UUID.class, UUID_CODEC);
+    }
+
+    /**
+     * Registers a codec for a custom id type.
+     * Resources with that id type are rejected until their codec is registered. Codecs cannot be replaced
+     * after the first resource with that id type is serialized, since the codec of a resource class is resolved only once.
+     * @param idType the java type of @JsonApiId annotated fields or methods
+     * @param codec the codec for that type
+     * @param <T> the id type
+     */
+    public static <T> void register(Class<T> idType, IdCodec<? super T> codec) {
+        codecs.put(idType, codec);
+        Assert.forgetInvalidVerdicts();
+    }
+
+    /**
+     * Get the codec for an id type.
+     * @param idType the java type of the id
+     * @return the registered codec, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> IdCodec<T> forType(Class<T> idType) {
+        return (IdCodec<T>) codecs.get(idType);
+    }
+
+    private static void appendHex(char[] chars, int offset, long value, int digits) {
+        for(int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static util.Assert.assertHasValidJsonApiAnnotations;
+
+/**
+ * Remembers the type and id of the resources of one jsonAPI document, keyed by object identity.
+ * Resources referenced many times, e.g. as primary data, as relationship target of many resources and as included resource,
+ * are only inspected once per document. Identifiers that are written repeatedly are kept encoded for the generator.
+ * A memo belongs to a single document and thread, since the ids of resources may change between documents.
+ * It can be shared by the serializations of one document as jackson attribute, using this class as key:
+ * {@code mapper.writer().withAttribute(IdentityMemo.class, memo)}.
+ */
+public final class IdentityMemo {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString TYPE = new SerializedString("type");
+
+    //created on first use, most documents without relationships never need it
+    private Map<Object, Identifier> identifiers;
+
+    /**
+     * @param resource a resource object
+     * @return the identifier of the resource, resolved on first use
+     * @throws exceptions.JsonApiSerializationException if the resource class is no valid jsonAPI resource
+     */
+    public Identifier get(Object resource) throws IllegalAccessException, InvocationTargetException {
+        if(identifiers == null) {
+            identifiers = new IdentityHashMap<>(8);
+        }
+        Identifier identifier = identifiers.get(resource);
+        if(identifier == null) {
+            assertHasValidJsonApiAnnotations(resource);
+            ResourceMetadata metadata = ResourceMetadata.of(resource.getClass());
+            identifier = new Identifier(metadata.getSerializedType(), metadata.getIdString(resource));
+            identifiers.put(resource, identifier);
+        }
+        return identifier;
+    }
+
+    /**
+     * The resolved type and id of a resource.
+     */
+    public static final class Identifier {
+        private final SerializableString type;
+        private final String id;
+        private SerializableString encodedId;
+        private boolean written;
+        private TextNode typeNode;
+        private TextNode idNode;
+
+        private Identifier(SerializableString type, String id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        public String getType() {
+            return type.getValue();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the key of the resource, unique per type and id
+         */
+        public String getKey() {
+            return getType() + '/' + id;
+        }
+
+        /**
+         * Writes the resource identifier object. The id is encoded on its second use and reused afterwards,
+         * resources that are referenced once are written as before.
+         */
+        public void write(JsonGenerator gen) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName(ID);
+            if(id == null) {
+                gen.writeNull();
+            } else if(encodedId != null) {
+                gen.writeString(encodedId);
+            } else {
+                gen.writeString(id);
+                if(written) {
+                    encodedId = new SerializedString(id);
+                }
+                written = true;
+            }
+            gen.writeFieldName(TYPE);
+            gen.writeString(type);
+            gen.writeEndObject();
+        }
+
+        /**
+         * @return a new resource identifier node. Its text nodes are shared, since text nodes are immutable.
+         */
+        public ObjectNode toNode() {
+            if(typeNode == null) {
+                typeNode = JsonNodeFactory.instance.textNode(getType());
+                idNode = JsonNodeFactory.instance.textNode(id);
+            }
+            ObjectNode node = CompactNodeFactory.get().objectNode();
+            node.set("id", idNode);
+            node.set("type", typeNode);
+            return node;
+        }
+    }
+}
@@ -1,21 +1,21 @@
 package util;
 
-import annotations.JsonApiId;
-import annotations.JsonApiResource;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import exceptions.JsonApiSerializationException;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.Collection;
 
 import static util.Assert.assertHasValidJsonApiAnnotations;
+import static util.Assert.assertIsValidRelationship;
 
 public class JsonUtils {
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectMapper mapper = new ObjectMapper().setNodeFactory(CompactNodeFactory.get());
 
     /**
      * Creates an empty objectnode on root node if no node by that name existed before.
@@ -44,6 +44,23 @@ public class JsonUtils {
         return rootNode.get(nodeName);
     }
 
+    /**
+     * Same as {@link #createRelationshipDataNode(Object)}, taking the identifiers of resources from a memo.
+     */
+    public static JsonNode createRelationshipDataNode(Object obj, IdentityMemo memo) throws InvocationTargetException, IllegalAccessException {
+        if(obj instanceof Collection) {
+            ArrayNode relatedDataNode = mapper.createArrayNode();
+            for(Object element: (Collection<?>) obj) {
+                relatedDataNode.add(createRelationshipDataNode(element, memo));
+            }
+            return relatedDataNode;
+        }
+        if(obj instanceof ResourceIdentifier) {
+            return createRelationshipDataNode(obj);
+        }
+        return memo.get(obj).toNode();
+    }
+
     public static JsonNode createRelationshipDataNode(Object obj) throws InvocationTargetException, IllegalAccessException {
         JsonNode relatedDataNode;
         if(obj instanceof Collection) {
@@ -52,8 +69,12 @@ public class JsonUtils {
                 ((ArrayNode) relatedDataNode).add(createRelationshipDataNode(element));
             }
 
+        } else if(obj instanceof ResourceIdentifier && ((ResourceIdentifier) obj).isLocal()) {
+            relatedDataNode = mapper.createObjectNode();
+            ((ObjectNode) relatedDataNode).put("lid", ((ResourceIdentifier) obj).getLid());
+            ((ObjectNode) relatedDataNode).put("type", ((ResourceIdentifier) obj).getType());
         } else {
-            assertHasValidJsonApiAnnotations(obj);
+            assertIsValidRelationship(obj);
             relatedDataNode = mapper.createObjectNode();
             ((ObjectNode) relatedDataNode).set("id", mapper.valueToTree(getJsonApiId(obj)));
             ((ObjectNode) relatedDataNode).set("type", mapper.valueToTree(getJsonApiType(obj)));
@@ -62,43 +83,146 @@ public class JsonUtils {
     }
 
     /**
-     * Get the jsonAPI id of a a jsonAPI resource object
-     * @param data the resource object
-     * @return the value of a @JsonApiId annotated field or method. If there are multiple @JsonApiId annotations present,
-     * annotated fields are considered first.
-     * @throws IllegalAccessException if the value of the id field cannot be determined
-     * @throws InvocationTargetException if the invocation of the id method fails
-     * @throws IllegalArgumentException if there is no JsonApiId annotated field or method
+     * Writes the resource identifier object(s) of a related resource or a collection of related resources.
+     * Nested collections are entered on the traversal, so cyclic or too deeply nested collections are written as empty arrays.
+     * At most {@link TraversalLimits#getMaxFanOut()} identifiers are written.
+     * @param obj the related resource object, a collection of related resource objects or null
+     * @param gen the generator to write to
+     * @param traversal the traversal of the current document
+     * @return the number of related resources that were left out because of the traversal limits
      */
-    public static String getJsonApiId(Object data) throws IllegalAccessException, InvocationTargetException, IllegalArgumentException {
-        for(Field field: data.getClass().getDeclaredFields()) {
-            field.setAccessible(true);
-            if(field.isAnnotationPresent(JsonApiId.class)
-                    && field.getType() == String.class) {
-                return (String) field.get(data);
+    public static int writeRelationshipData(Object obj, JsonGenerator gen, Traversal traversal) throws IOException, InvocationTargetException, IllegalAccessException {
+        int[] remainingFanOut = {traversal.getLimits().getMaxFanOut()};
+        return writeRelationshipData(obj, gen, traversal, remainingFanOut);
+    }
+
+    /**
+     * Same as {@link #writeRelationshipData(Object, JsonGenerator, Traversal)}, writing at most maxIdentifiers identifiers.
+     */
+    public static int writeRelationshipData(Object obj, JsonGenerator gen, Traversal traversal, int maxIdentifiers) throws IOException, InvocationTargetException, IllegalAccessException {
+        int[] remainingFanOut = {Math.min(maxIdentifiers, traversal.getLimits().getMaxFanOut())};
+        return writeRelationshipData(obj, gen, traversal, remainingFanOut);
+    }
+
+    private static int writeRelationshipData(Object obj, JsonGenerator gen, Traversal traversal, int[] remainingFanOut) throws IOException, InvocationTargetException, IllegalAccessException {
+        if(obj == null) {
+            gen.writeNull();
+            return 0;
+        }
+        if(!(obj instanceof Collection)) {
+            writeResourceIdentifier(obj, gen, traversal.getMemo());
+            return 0;
+        }
+
+        Collection<?> collection = (Collection<?>) obj;
+        gen.writeStartArray();
+        if(!traversal.enter(collection)) {
+            gen.writeEndArray();
+            return collection.size();
+        }
+        int omitted = 0;
+        try {
+            for(Object element: collection) {
+                if(element instanceof Collection) {
+                    omitted += writeRelationshipData(element, gen, traversal, remainingFanOut);
+                } else if(remainingFanOut[0] > 0) {
+                    remainingFanOut[0]--;
+                    writeResourceIdentifier(element, gen, traversal.getMemo());
+                } else {
+                    omitted++;
+                }
             }
+        } finally {
+            traversal.exit(collection);
         }
-        for(Method method: data.getClass().getDeclaredMethods()) {
-            method.setAccessible(true);
-            if(method.isAnnotationPresent(JsonApiId.class)
-                    && method.getReturnType() == String.class
-                    && method.getParameterCount() == 0) {
-                return (String) method.invoke(data);
+        gen.writeEndArray();
+        return omitted;
+    }
+
+    /**
+     * Writes the resource identifier object of a resource.
+     * @param obj the resource object or a {@link ResourceIdentifier}
+     * @param gen the generator to write to
+     */
+    public static void writeResourceIdentifier(Object obj, JsonGenerator gen) throws IOException, InvocationTargetException, IllegalAccessException {
+        if(obj instanceof ResourceIdentifier) {
+            ResourceIdentifier identifier = (ResourceIdentifier) obj;
+            gen.writeStartObject();
+            if(identifier.isLocal()) {
+                gen.writeStringField("lid", identifier.getLid());
+            } else {
+                gen.writeStringField("id", identifier.getId());
             }
+            gen.writeStringField("type", identifier.getType());
+            gen.writeEndObject();
+            return;
         }
-        throw new IllegalArgumentException(data.getClass().getCanonicalName() + " contains no @JsonApiId annotation");
+        assertHasValidJsonApiAnnotations(obj);
+        ResourceMetadata metadata = ResourceMetadata.of(obj.getClass());
+        gen.writeStartObject();
+        gen.writeFieldName("id");
+        metadata.writeId(obj, gen);
+        gen.writeStringField("type", metadata.getType());
+        gen.writeEndObject();
     }
 
     /**
-     * Get the jsonAPI type of a jsonAPI resource object
+     * Same as {@link #writeResourceIdentifier(Object, JsonGenerator)}, taking the identifiers of resources from a memo.
+     */
+    public static void writeResourceIdentifier(Object obj, JsonGenerator gen, IdentityMemo memo) throws IOException, InvocationTargetException, IllegalAccessException {
+        if(obj instanceof ResourceIdentifier) {
+            writeResourceIdentifier(obj, gen);
+        } else {
+            memo.get(obj).write(gen);
+        }
+    }
+
+    /**
+     * Get the jsonAPI id of a a jsonAPI resource object
+     * @param data the resource object or a {@link ResourceIdentifier}
+     * @return the value of a @JsonApiId annotated field or method, formatted by the {@link IdCodec} of its type,
+     * or null for identifiers with a local id.
+     * If there are multiple @JsonApiId annotations present, annotated fields are considered first.
+     * @throws IllegalAccessException if the value of the id field cannot be determined
+     * @throws InvocationTargetException if the invocation of the id method fails
+     * @throws JsonApiSerializationException if there is no JsonApiId annotated field or method
+     */
+    public static String getJsonApiId(Object data) throws IllegalAccessException, InvocationTargetException {
+        if(data instanceof ResourceIdentifier) {
+            return ((ResourceIdentifier) data).getId();
+        }
+        return ResourceMetadata.of(data.getClass()).getIdString(data);
+    }
+
+    /**
+     * Writes the jsonAPI id of a jsonAPI resource object as json string, without formatting it as String first.
      * @param data the resource object
+     * @param gen the generator to write to
+     */
+    public static void writeJsonApiId(Object data, JsonGenerator gen) throws IOException, IllegalAccessException, InvocationTargetException {
+        ResourceMetadata.of(data.getClass()).writeId(data, gen);
+    }
+
+    /**
+     * Parses the id of an incoming jsonAPI resource object using the {@link IdCodec} of the resource class.
+     * @param resourceClass the jsonAPI resource class
+     * @param id the value of the id member
+     * @return the id, converted to the type of the @JsonApiId annotated field or method
+     */
+    public static Object parseJsonApiId(Class<?> resourceClass, String id) {
+        return ResourceMetadata.of(resourceClass).parseId(id);
+    }
+
+    /**
+     * Get the jsonAPI type of a jsonAPI resource object
+     * @param data the resource object or a {@link ResourceIdentifier}
      * @return the type of the object, as specified in @JsonApiResource annotation
      */
     public static String getJsonApiType(Object data) {
-        return data
-                .getClass()
-                .getDeclaredAnnotation(JsonApiResource.class)
-                .type();
+        if(data instanceof ResourceIdentifier) {
+            return ((ResourceIdentifier) data).getType();
+        }
+        return ResourceMetadata.of(data.getClass()).getType();
     }
 
 
@@ -0,0 +1,59 @@
+package util;
+
+/**
+ * Limits for reading incoming jsonAPI documents, so abusive requests cannot exhaust cpu or memory.
+ * All limits are checked while the document is parsed, requests exceeding them are rejected
+ * without reading the rest of the document.
+ */
+public final class RequestLimits {
+    private static volatile RequestLimits defaults = new RequestLimits(1024 * 1024, 1_000, 32, 64 * 1024);
+
+    private final long maxDocumentBytes;
+    private final int maxResources;
+    private final int maxDepth;
+    private final int maxStringLength;
+
+    /**
+     * @param maxDocumentBytes maximum size of the request body in bytes
+     * @param maxResources maximum number of resource objects in the primary data
+     * @param maxDepth maximum nesting of json objects and arrays, including the document itself
+     * @param maxStringLength maximum number of characters of string values and member names. Strings are checked once
+     *                        they were read completely, so maxDocumentBytes bounds the memory of a single string
+     */
+    public RequestLimits(long maxDocumentBytes, int maxResources, int maxDepth, int maxStringLength) {
+        if(maxDocumentBytes < 1 || maxResources < 1 || maxDepth < 1 || maxStringLength < 1) {
+            throw new IllegalArgumentException("Request limits need to be positive");
+        }
+        this.maxDocumentBytes = maxDocumentBytes;
+        this.maxResources = maxResources;
+        this.maxDepth = maxDepth;
+        this.maxStringLength = maxStringLength;
+    }
+
+    /**
+     * @return the limits used if no limits are passed when reading a request
+     */
+    public static RequestLimits defaults() {
+        return defaults;
+    }
+
+    public static void setDefaults(RequestLimits limits) {
+        defaults = limits;
+    }
+
+    public long getMaxDocumentBytes() {
+        return maxDocumentBytes;
+    }
+
+    public int getMaxResources() {
+        return maxResources;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+}
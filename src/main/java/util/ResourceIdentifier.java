@@ -0,0 +1,90 @@
+package util;
+
+import java.util.Objects;
+
+/**
+ * Reference to a jsonAPI resource by type and id, for related resources that are not loaded.
+ * Can be used as value of relationships instead of the related resource object.
+ * Resources created by the same request, e.g. by an earlier atomic operation, are referred to by their local id (lid) instead.
+ */
+public final class ResourceIdentifier {
+    private final String type;
+    //exactly one of id and lid is set
+    private final String id;
+    private final String lid;
+
+    private ResourceIdentifier(String type, String id, String lid) {
+        this.type = Objects.requireNonNull(type);
+        this.id = id;
+        this.lid = lid;
+    }
+
+    public static ResourceIdentifier of(String type, String id) {
+        return new ResourceIdentifier(type, Objects.requireNonNull(id), null);
+    }
+
+    /**
+     * Creates an identifier for a resource that has no id yet, but a local id assigned by the client.
+     * @param type the jsonAPI type
+     * @param lid the local id, unique within the request
+     * @return the identifier
+     */
+    public static ResourceIdentifier ofLid(String type, String lid) {
+        return new ResourceIdentifier(type, null, Objects.requireNonNull(lid));
+    }
+
+    /**
+     * Creates an identifier for a resource class, formatting the id with the {@link IdCodec} of the class.
+     * @param resourceClass the jsonAPI resource class
+     * @param id the id, of the type of the @JsonApiId annotated field or method
+     * @return the identifier
+     */
+    public static ResourceIdentifier of(Class<?> resourceClass, Object id) {
+        ResourceMetadata metadata = ResourceMetadata.of(resourceClass);
+        return new ResourceIdentifier(metadata.getType(), metadata.formatId(id), null);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the id, or null if the identifier has a local id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the local id, or null if the identifier has an id
+     */
+    public String getLid() {
+        return lid;
+    }
+
+    public boolean isLocal() {
+        return lid != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof ResourceIdentifier)) {
+            return false;
+        }
+        ResourceIdentifier other = (ResourceIdentifier) o;
+        return type.equals(other.type) && Objects.equals(id, other.id) && Objects.equals(lid, other.lid);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + ((id != null)? id.hashCode() : 17 * lid.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return type + "/" + ((id != null)? id : "lid:" + lid);
+    }
+}
@@ -0,0 +1,519 @@
+package util;
+
+import annotations.JsonApiId;
+import annotations.JsonApiLink;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import exceptions.JsonApiSerializationException;
+
+import java.io.IOException;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static util.Assert.isGettable;
+
+/**
+ * Reflection information of a jsonAPI resource class, resolved once per class and cached afterwards.
+ * Objects derived from it, like the writers of the serializer and the binding plans of requests,
+ * are kept with the metadata, so there is a single cache per class.
+ */
+public class ResourceMetadata {
+    private static final Map<Class<?>, ResourceMetadata> cache = new ConcurrentHashMap<>();
+
+    private final Class<?> resourceClass;
+    private final String type;
+    private final SerializedString serializedType;
+    private final String location;
+    private final AccessibleObject idMember;
+    private final IdCodec<Object> idCodec;
+    private final List<Attribute> attributes;
+    private final List<Relationship> relationships;
+    private final List<Link> links;
+    private final Constructor<?> constructor;
+    private final Map<Class<?>, Object> derived = new ConcurrentHashMap<>(4);
+
+    private ResourceMetadata(Class<?> resourceClass) {
+        JsonApiResource annotation = resourceClass.getDeclaredAnnotation(JsonApiResource.class);
+        if(annotation == null) {
+            throw new JsonApiSerializationException("Class needs to be annotated with JsonApiResource annotation");
+        }
+        this.resourceClass = resourceClass;
+        this.type = annotation.type();
+        this.serializedType = new SerializedString(type);
+        this.location = annotation.location();
+        DeclarationOrder order = DeclarationOrder.of(resourceClass);
+        this.idMember = findIdMember(resourceClass, order);
+        this.idCodec = findIdCodec(resourceClass, idMember);
+        this.attributes = orderAttributes(resourceClass, findAttributes(resourceClass, order));
+        this.relationships = findRelationships(resourceClass, order);
+        this.links = findLinks(resourceClass, order);
+        this.constructor = findConstructor(resourceClass);
+    }
+
+    /**
+     * Get the metadata of a jsonAPI resource class.
+     * @param resourceClass the class annotated with @JsonApiResource
+     * @return the cached metadata of the class
+     * @throws JsonApiSerializationException if the class is no valid jsonAPI resource
+     */
+    public static ResourceMetadata of(Class<?> resourceClass) {
+        ResourceMetadata metadata = cache.get(resourceClass);
+        if(metadata == null) {
+            metadata = cache.computeIfAbsent(resourceClass, ResourceMetadata::new);
+        }
+        return metadata;
+    }
+
+    /**
+     * Get an object derived from this metadata, created on first use.
+     * @param kind the class of the derived object, at most one object of each kind is kept
+     * @param factory creates the derived object from this metadata
+     * @return the derived object
+     */
+    public <T> T derive(Class<T> kind, Function<ResourceMetadata, ? extends T> factory) {
+        Object object = derived.get(kind);
+        if(object == null) {
+            object = derived.computeIfAbsent(kind, k -> factory.apply(this));
+        }
+        return kind.cast(object);
+    }
+
+    public Class<?> getResourceClass() {
+        return resourceClass;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the type, encoded once for all generators
+     */
+    public SerializableString getSerializedType() {
+        return serializedType;
+    }
+
+    /**
+     * @return the location specified in the @JsonApiResource annotation, or the empty string if none was specified
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Creates an empty instance of the resource class, e.g. for binding an incoming resource object.
+     * @return a new instance created by the no-arg constructor
+     * @throws JsonApiSerializationException if the class has no no-arg constructor or the constructor fails
+     */
+    public Object newInstance() {
+        if(constructor == null) {
+            throw new JsonApiSerializationException(resourceClass.getCanonicalName() + " needs a no-arg constructor to be read from requests");
+        }
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new JsonApiSerializationException("Creating an instance of " + resourceClass.getCanonicalName() + " failed", e);
+        }
+    }
+
+    /**
+     * Sets the id of a resource. Ids of @JsonApiId annotated methods cannot be set and are ignored.
+     * @param resource the resource object
+     * @param id the id, of the type of the @JsonApiId annotated field
+     */
+    public void setId(Object resource, Object id) throws IllegalAccessException {
+        if(idMember instanceof Field) {
+            ((Field) idMember).set(resource, id);
+        }
+    }
+
+    /**
+     * Get the raw value of the @JsonApiId annotated field or method.
+     * @param resource the resource object
+     * @return the id, as returned by the annotated member
+     */
+    public Object getId(Object resource) throws IllegalAccessException, InvocationTargetException {
+        if(idMember instanceof Field) {
+            return ((Field) idMember).get(resource);
+        }
+        return ((Method) idMember).invoke(resource);
+    }
+
+    /**
+     * Get the id of a resource as String.
+     * @param resource the resource object
+     * @return the formatted id, or null if the id is null
+     */
+    public String getIdString(Object resource) throws IllegalAccessException, InvocationTargetException {
+        return formatId(getId(resource));
+    }
+
+    /**
+     * Formats an id of this resource class as String.
+     * @param id the id, of the type of the @JsonApiId annotated field or method
+     * @return the formatted id, or null if the id is null
+     */
+    public String formatId(Object id) {
+        return (id != null)? idCodec.format(id) : null;
+    }
+
+    /**
+     * Writes the id of a resource to the generator without formatting it as temporary String.
+     * @param resource the resource object
+     * @param gen the generator to write to
+     */
+    public void writeId(Object resource, JsonGenerator gen) throws IOException, IllegalAccessException, InvocationTargetException {
+        Object id = getId(resource);
+        if(id == null) {
+            gen.writeNull();
+        } else {
+            idCodec.write(id, gen);
+        }
+    }
+
+    /**
+     * Parses an id of an incoming jsonAPI document to the id type of this resource class.
+     * @param id the string value of the id
+     * @return the parsed id
+     */
+    public Object parseId(String id) {
+        return (id != null)? idCodec.parse(id) : null;
+    }
+
+    /**
+     * Get the attributes of the resource class
+     * (i.e. public fields, @JsonProperty annotated fields, getter methods, @JsonProperty annotated methods).
+     * Fields or methods annotated with @JsonApiId are excluded, since they are serialized elsewhere.
+     * The order is deterministic: attributes named in @JsonPropertyOrder come first, the others follow alphabetically
+     * if it is alphabetic, otherwise fields before methods, each in declaration order.
+     * @return the attributes of the resource class
+     */
+    public List<Attribute> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return the @JsonApiRelationship annotated fields of the resource class, in declaration order
+     */
+    public List<Relationship> getRelationships() {
+        return relationships;
+    }
+
+    /**
+     * @return the static links of @JsonApiLink annotated fields, in declaration order
+     */
+    public List<Link> getLinks() {
+        return links;
+    }
+
+    /**
+     * @param name the name of the attribute in the serialized resource
+     * @return the attribute by that name, or null if the resource class has no such attribute
+     */
+    public Attribute getAttribute(String name) {
+        for(Attribute attribute: attributes) {
+            if(attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name the name of the relationship in the serialized resource
+     * @return the relationship by that name, or null if the resource class has no such relationship
+     */
+    public Relationship getRelationship(String name) {
+        for(Relationship relationship: relationships) {
+            if(relationship.getName().equals(name)) {
+                return relationship;
+            }
+        }
+        return null;
+    }
+
+    private static AccessibleObject findIdMember(Class<?> resourceClass, DeclarationOrder order) {
+        //annotated fields are considered first
+        for(Field field: order.fields(resourceClass)) {
+            if(field.isAnnotationPresent(JsonApiId.class)) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        for(Method method: order.methods(resourceClass)) {
+            if(method.isAnnotationPresent(JsonApiId.class) && isGettable(method)) {
+                method.setAccessible(true);
+                return method;
+            }
+        }
+        throw new JsonApiSerializationException(resourceClass.getCanonicalName() + " contains no @JsonApiId annotation");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IdCodec<Object> findIdCodec(Class<?> resourceClass, AccessibleObject idMember) {
+        Class<?> idType = (idMember instanceof Field)?
+                ((Field) idMember).getType() : ((Method) idMember).getReturnType();
+        IdCodec<?> codec = IdCodecs.forType(idType);
+        if(codec == null) {
+            throw new JsonApiSerializationException("No IdCodec registered for id type " + idType.getName()
+                    + " of " + resourceClass.getCanonicalName());
+        }
+        return (IdCodec<Object>) codec;
+    }
+
+    private static Map<String, Attribute> findAttributes(Class<?> resourceClass, DeclarationOrder order) {
+        Map<String, Attribute> attributes = new LinkedHashMap<>();
+        //fields
+        for(Field field: order.fields(resourceClass)) {
+            if(field.isAnnotationPresent(JsonApiId.class)) {
+                continue; //do not serialize id twice.
+            } else if(field.isAnnotationPresent(JsonProperty.class)) {
+                field.setAccessible(true);
+                String fieldName = field.getAnnotation(JsonProperty.class).value();
+                attributes.put(fieldName, new Attribute(fieldName, field));
+            } else if(Modifier.isPublic(field.getModifiers())) {
+                field.setAccessible(true);
+                attributes.put(field.getName(), new Attribute(field.getName(), field));
+            } //do not serialize inaccessible fields without JsonProperty-annotation.
+        }
+        //getters and @JsonProperty annotated methods
+        for(Method method: order.methods(resourceClass)) {
+            if(method.isAnnotationPresent(JsonProperty.class)) {
+                if(!isGettable(method)) {
+                    throw new JsonApiSerializationException("@JsonProperty annotated method needs to have a non void return value" +
+                            "and no parameters.");
+                }
+                method.setAccessible(true);
+                String attributeName = method.getDeclaredAnnotation(JsonProperty.class).value();
+                attributes.putIfAbsent(attributeName, new Attribute(attributeName, method));
+            }
+            if(isGetter(method)) {
+                method.setAccessible(true);
+                attributes.putIfAbsent(getterAttribute(method), new Attribute(getterAttribute(method), method));
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Applies the @JsonPropertyOrder annotation of the resource class, if present.
+     */
+    private static List<Attribute> orderAttributes(Class<?> resourceClass, Map<String, Attribute> attributes) {
+        JsonPropertyOrder propertyOrder = resourceClass.getAnnotation(JsonPropertyOrder.class);
+        if(propertyOrder == null) {
+            return Collections.unmodifiableList(new ArrayList<>(attributes.values()));
+        }
+        Map<String, Attribute> remaining = propertyOrder.alphabetic()? new TreeMap<>(attributes) : new LinkedHashMap<>(attributes);
+        List<Attribute> ordered = new ArrayList<>(attributes.size());
+        for(String name: propertyOrder.value()) {
+            Attribute attribute = remaining.remove(name);
+            if(attribute != null) {
+                ordered.add(attribute);
+            }
+        }
+        ordered.addAll(remaining.values());
+        return Collections.unmodifiableList(ordered);
+    }
+
+    private static List<Relationship> findRelationships(Class<?> resourceClass, DeclarationOrder order) {
+        List<Relationship> relationships = new ArrayList<>();
+        for(Field field: order.fields(resourceClass)) {
+            if(field.isAnnotationPresent(JsonApiRelationship.class)) {
+                field.setAccessible(true);
+                JsonApiRelationship annotation = field.getDeclaredAnnotation(JsonApiRelationship.class);
+                String name = annotation.name().equals("")? field.getName() : annotation.name();
+                relationships.add(new Relationship(name, annotation.location(), annotation.pageSize(), field));
+            }
+        }
+        return Collections.unmodifiableList(relationships);
+    }
+
+    private static List<Link> findLinks(Class<?> resourceClass, DeclarationOrder order) {
+        List<Link> links = new ArrayList<>();
+        for(Field field: order.fields(resourceClass)) {
+            if(field.isAnnotationPresent(JsonApiLink.class)) {
+                JsonApiLink annotation = field.getDeclaredAnnotation(JsonApiLink.class);
+                String name = annotation.name().equals("")? field.getName() : annotation.name();
+                links.add(new Link(name, annotation.target()));
+            }
+        }
+        return Collections.unmodifiableList(links);
+    }
+
+    private static Constructor<?> findConstructor(Class<?> resourceClass) {
+        try {
+            Constructor<?> constructor = resourceClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null; //only needed for reading resources
+        }
+    }
+
+    /**
+     * Finds the public setter of a getter attribute, e.g. setName(String) for getName().
+     */
+    private static Method findSetter(Method getter) {
+        try {
+            Method setter = getter.getDeclaringClass().getDeclaredMethod("set" + getter.getName().substring(3), getter.getReturnType());
+            return Modifier.isPublic(setter.getModifiers())? setter : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static String getterAttribute(Method method) {
+        //remove the leading "get" and lowercase first letter to match attribute name conventions
+        char[] chars = method.getName().substring(3).toCharArray();
+        chars[0] = Character.toLowerCase(chars[0]);
+        return new String(chars);
+    }
+
+    private static boolean isGetter(Method method) {
+        return method.getName().startsWith("get")
+                && Modifier.isPublic(method.getModifiers())
+                && isGettable(method);
+    }
+
+    /**
+     * A field or method whose value is serialized as jsonAPI attribute.
+     */
+    public static final class Attribute {
+        private final String name;
+        private final AccessibleObject member;
+        private final Method setter;
+
+        private Attribute(String name, AccessibleObject member) {
+            this.name = name;
+            this.member = member;
+            this.setter = (member instanceof Method && isGetter((Method) member))? findSetter((Method) member) : null;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Object get(Object resource) throws IllegalAccessException, InvocationTargetException {
+            if(member instanceof Field) {
+                return ((Field) member).get(resource);
+            }
+            return ((Method) member).invoke(resource);
+        }
+
+        /**
+         * @return the generic type of the field or getter
+         */
+        public Type getGenericType() {
+            if(member instanceof Field) {
+                return ((Field) member).getGenericType();
+            }
+            return ((Method) member).getGenericReturnType();
+        }
+
+        /**
+         * @return whether the attribute can be set, i.e. it is a field or a getter with a public setter
+         */
+        public boolean isWritable() {
+            return member instanceof Field || setter != null;
+        }
+
+        public void set(Object resource, Object value) throws IllegalAccessException, InvocationTargetException {
+            if(member instanceof Field) {
+                ((Field) member).set(resource, value);
+            } else if(setter != null) {
+                setter.invoke(resource, value);
+            } else {
+                throw new IllegalStateException("Attribute " + name + " is not writable");
+            }
+        }
+    }
+
+    /**
+     * A static link specified by a @JsonApiLink annotated field.
+     */
+    public static final class Link {
+        private final String name;
+        private final String target;
+
+        private Link(String name, String target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+    }
+
+    /**
+     * A @JsonApiRelationship annotated field.
+     */
+    public static final class Relationship {
+        private final String name;
+        private final String location;
+        private final int pageSize;
+        private final Field field;
+
+        private Relationship(String name, String location, int pageSize, Field field) {
+            this.name = name;
+            this.location = location;
+            this.pageSize = pageSize;
+            this.field = field;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the location specified in the @JsonApiRelationship annotation, or the empty string if none was specified
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * @return the page size specified in the @JsonApiRelationship annotation, or a negative value if none was specified
+         */
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public Object get(Object resource) throws IllegalAccessException {
+            return field.get(resource);
+        }
+
+        /**
+         * @return the generic type of the relationship field
+         */
+        public Type getGenericType() {
+            return field.getGenericType();
+        }
+
+        public void set(Object resource, Object value) throws IllegalAccessException {
+            field.set(resource, value);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package util;
+
+import java.util.Collection;
+
+/**
+ * Reports the phases of serializing jsonAPI documents to the JDK Flight Recorder.
+ * The events are only loaded on Java 11+ runtimes with the jdk.jfr module, otherwise nothing is recorded.
+ * Which events are recorded, and their thresholds, are configured with the settings of the recording,
+ * e.g. {@code recording.enable("jsonapi.Document").withThreshold(Duration.ofMillis(50))}.
+ * <p>
+ * Usage: {@code Object event = SerializationEvents.get().begin(Kind.DOCUMENT);}, followed by
+ * {@code SerializationEvents.get().end(event, type, count, bytes)} once the phase is done, also if it failed.
+ * <p>
+ * The bytes of a document are only known where this library writes the output stream itself, i.e. for publishers.
+ * Documents serialized by the JsonApiSerializer report -1, since they are written to a generator of the caller.
+ * This includes the documents of JsonApiResponse, which are written by the JAX-RS runtime.
+ */
+public class SerializationEvents {
+    private static final SerializationEvents instance = load();
+
+    public enum Kind {
+        /** Serialization of a whole document. */
+        DOCUMENT,
+        /** Loading a batch of resources of one type. */
+        RESOURCE_BATCH,
+        /** Resolving the links of a document. */
+        LINKS,
+        /** Resolving the included resources of a document. */
+        INCLUDES
+    }
+
+    SerializationEvents() {
+    }
+
+    public static SerializationEvents get() {
+        return instance;
+    }
+
+    private static SerializationEvents load() {
+        try {
+            return (SerializationEvents) Class.forName("util.JfrSerializationEvents").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            //runtime without the flight recorder
+            return new SerializationEvents();
+        }
+    }
+
+    /**
+     * Starts an event.
+     * @return the started event, or null if events of this kind are not recorded
+     */
+    public Object begin(Kind kind) {
+        return null;
+    }
+
+    /**
+     * Ends an event started by {@link #begin(Kind)}. It is committed if it lasted longer than the threshold of the recording.
+     * @param event the started event, may be null
+     * @param type the jsonAPI type of the resources, may be null
+     * @param count the number of resources
+     * @param bytes the number of bytes written, or -1 if unknown
+     */
+    public void end(Object event, String type, int count, long bytes) {
+    }
+
+    /**
+     * Ends an event about the primary data of a document, taking type and count from the data.
+     * @param event the started event, may be null
+     * @param data a resource or a collection of resources
+     * @param bytes the number of bytes written, or -1 if unknown
+     */
+    public void end(Object event, Object data, long bytes) {
+        if(event == null) {
+            return;
+        }
+        if(data instanceof Collection) {
+            Collection<?> resources = (Collection<?>) data;
+            Object first = resources.isEmpty()? null : resources.iterator().next();
+            end(event, (first != null)? JsonUtils.getJsonApiType(first) : null, resources.size(), bytes);
+        } else {
+            end(event, (data != null)? JsonUtils.getJsonApiType(data) : null, (data != null)? 1 : 0, bytes);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package util;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Tracks the objects on the current path and the resources already written while walking the object graph of a jsonAPI document.
+ * Objects are compared by identity, so cycles and shared resources are detected regardless of equals implementations.
+ */
+public class Traversal {
+    private final TraversalLimits limits;
+    private final IdentityMemo memo;
+    private final Set<Object> path = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int nestedResources;
+
+    public Traversal(TraversalLimits limits) {
+        this(limits, new IdentityMemo());
+    }
+
+    public Traversal(TraversalLimits limits, IdentityMemo memo) {
+        this.limits = limits;
+        this.memo = memo;
+    }
+
+    public TraversalLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * @return the identifiers of the resources of the current document
+     */
+    public IdentityMemo getMemo() {
+        return memo;
+    }
+
+    /**
+     * Enters a collection.
+     * @param node the collection
+     * @return false if the node is already on the current path (i.e. a cycle) or the maximum depth is reached.
+     * Only if true is returned, {@link #exit(Object)} needs to be called afterwards.
+     */
+    public boolean enter(Object node) {
+        if(path.size() >= limits.getMaxDepth()) {
+            return false;
+        }
+        return path.add(node);
+    }
+
+    /**
+     * Enters a resource that is written with its attributes and relationships. Every resource is written like this
+     * at most once per document, so graphs sharing resources (e.g. diamonds) are walked in linear time.
+     * Resources nested in the attributes of other resources count against {@link TraversalLimits#getMaxFanOut()}.
+     * @param resource the resource object
+     * @return false if the resource was already written, the maximum depth or fan-out is reached.
+     * Only if true is returned, {@link #exit(Object)} needs to be called afterwards.
+     */
+    public boolean enterResource(Object resource) {
+        boolean nested = !path.isEmpty();
+        if(path.size() >= limits.getMaxDepth() || (nested && nestedResources >= limits.getMaxFanOut())) {
+            return false;
+        }
+        if(!visited.add(resource)) {
+            return false;
+        }
+        if(nested) {
+            nestedResources++;
+        }
+        return path.add(resource);
+    }
+
+    public void exit(Object node) {
+        path.remove(node);
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+/**
+ * Limits for walking the object graph of a jsonAPI document, so badly shaped graphs cannot exhaust cpu or memory.
+ * Resources or identifiers beyond the limits are left out and reported in the meta object of the document or relationship.
+ * Limits can be passed to a single serialization as jackson attribute, using this class as key:
+ * {@code mapper.writer().withAttribute(TraversalLimits.class, limits)}.
+ */
+public final class TraversalLimits {
+    private static volatile TraversalLimits defaults = new TraversalLimits(16, 10_000);
+
+    private final int maxDepth;
+    private final int maxFanOut;
+
+    /**
+     * @param maxDepth maximum nesting of resources (e.g. resources as attributes of other resources)
+     *                 and of collections in relationships
+     * @param maxFanOut maximum number of resource identifiers written per relationship,
+     *                  and of resources written in the attributes of other resources per document
+     */
+    public TraversalLimits(int maxDepth, int maxFanOut) {
+        if(maxDepth < 1 || maxFanOut < 0) {
+            throw new IllegalArgumentException("maxDepth needs to be positive and maxFanOut must not be negative");
+        }
+        this.maxDepth = maxDepth;
+        this.maxFanOut = maxFanOut;
+    }
+
+    /**
+     * @return the limits used if no limits were passed as attribute
+     */
+    public static TraversalLimits defaults() {
+        return defaults;
+    }
+
+    public static void setDefaults(TraversalLimits limits) {
+        defaults = limits;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxFanOut() {
+        return maxFanOut;
+    }
+}
@@ -0,0 +1,112 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder events of the serialization phases, loaded by {@link SerializationEvents} if the flight recorder is available.
+ */
+final class JfrSerializationEvents extends SerializationEvents {
+    //indexed by the ordinal of the kind, checked before an event is allocated
+    private final EventType[] types;
+
+    JfrSerializationEvents() {
+        if(!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("The flight recorder is not available");
+        }
+        types = new EventType[Kind.values().length];
+        types[Kind.DOCUMENT.ordinal()] = EventType.getEventType(DocumentEvent.class);
+        types[Kind.RESOURCE_BATCH.ordinal()] = EventType.getEventType(ResourceBatchEvent.class);
+        types[Kind.LINKS.ordinal()] = EventType.getEventType(LinksEvent.class);
+        types[Kind.INCLUDES.ordinal()] = EventType.getEventType(IncludesEvent.class);
+    }
+
+    @Override
+    public Object begin(Kind kind) {
+        //documents are serialized far more often than they are recorded, they must not allocate events for nothing
+        if(!types[kind.ordinal()].isEnabled()) {
+            return null;
+        }
+        JsonApiEvent event;
+        switch(kind) {
+            case DOCUMENT:
+                event = new DocumentEvent();
+                break;
+            case RESOURCE_BATCH:
+                event = new ResourceBatchEvent();
+                break;
+            case LINKS:
+                event = new LinksEvent();
+                break;
+            default:
+                event = new IncludesEvent();
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void end(Object started, String type, int count, long bytes) {
+        if(started == null) {
+            return;
+        }
+        JsonApiEvent event = (JsonApiEvent) started;
+        event.end();
+        if(event.shouldCommit()) {
+            event.type = type;
+            event.count = count;
+            if(event instanceof DocumentEvent) {
+                ((DocumentEvent) event).bytes = bytes;
+            }
+            event.commit();
+        }
+    }
+
+    @Category("JSON:API")
+    abstract static class JsonApiEvent extends Event {
+        @Label("Resource Type")
+        String type;
+
+        @Label("Resources")
+        int count;
+    }
+
+    @Name("jsonapi.Document")
+    @Label("Document Serialization")
+    @Description("Serialization of a jsonAPI document, count is the number of primary resources")
+    @Threshold("10 ms")
+    static final class DocumentEvent extends JsonApiEvent {
+        @Label("Bytes")
+        @Description("Bytes written, -1 if the document was written to a generator of the caller, whose output is not counted")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("jsonapi.ResourceBatch")
+    @Label("Resource Batch")
+    @Description("Loading the related resources of one type with a RelationshipLoader")
+    @Threshold("5 ms")
+    static final class ResourceBatchEvent extends JsonApiEvent {
+    }
+
+    @Name("jsonapi.Links")
+    @Label("Link Resolution")
+    @Description("Resolving relative links of a document, count is the number of resource objects")
+    @Threshold("1 ms")
+    static final class LinksEvent extends JsonApiEvent {
+    }
+
+    @Name("jsonapi.Includes")
+    @Label("Include Resolution")
+    @Description("Resolving the included resources of a document, count is the number of included resources")
+    @Threshold("5 ms")
+    static final class IncludesEvent extends JsonApiEvent {
+    }
+}
@@ -0,0 +1,110 @@
+package response;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+/**
+ * jsonAPI responses whose primary data is produced by a {@link Flow.Publisher}.
+ * Resources are serialized while the publisher emits them, so the data does not have to be collected first.
+ * <p>
+ * The response is written by the container's writer thread, which blocks while it waits for the publisher to emit
+ * the next resource. A slow publisher therefore holds a writer thread for the whole response, size the container's
+ * thread pool accordingly. The publisher's threads never block on the writer.
+ * <p>
+ * Only available on Java 9 and later, in the separate jar with the classifier {@code flow}.
+ */
+public class JsonApiPublisherResponse {
+    public static final int DEFAULT_WINDOW = 64;
+
+    private JsonApiPublisherResponse() {
+    }
+
+    public static RequiredPublisher getResponse(UriInfo uriInfo) {
+        return new PublisherResponseBuilder(uriInfo);
+    }
+
+    private static class PublisherResponseBuilder implements RequiredPublisher, Buildable {
+        private final UriInfo uriInfo;
+        private final Map<String, URI> links = new LinkedHashMap<>();
+        private int window = DEFAULT_WINDOW;
+        private Flow.Publisher<?> publisher;
+
+        private PublisherResponseBuilder(UriInfo uriInfo) {
+            this.uriInfo = uriInfo;
+        }
+
+        @Override
+        public RequiredPublisher window(int window) {
+            if(window < 1) {
+                throw new IllegalArgumentException("The request window needs to hold at least one resource, but was " + window);
+            }
+            this.window = window;
+            return this;
+        }
+
+        @Override
+        public Buildable data(Flow.Publisher<?> publisher) {
+            this.publisher = publisher;
+            return this;
+        }
+
+        @Override
+        public Buildable addLink(String name, URI ref) {
+            links.put(name, uriInfo.getAbsolutePath().resolve("/").resolve(ref));
+            return this;
+        }
+
+        @Override
+        public Response build() {
+            Map<String, URI> documentLinks = new LinkedHashMap<>();
+            documentLinks.put("self", uriInfo.getAbsolutePath());
+            documentLinks.putAll(links);
+            return Response
+                    .status(Response.Status.OK)
+                    .type(JsonApiResponse.JSONAPI_TYPE)
+                    .entity(new PublisherOutput(publisher, window, uriInfo, documentLinks))
+                    .build();
+        }
+    }
+
+    /**
+     * Interface for a Responsebuilder that needs a publisher of the primary data.
+     */
+    public interface RequiredPublisher {
+        /**
+         * Sets how many resources are requested from the publisher at most before they are written,
+         * which bounds the number of buffered resources. Defaults to {@link #DEFAULT_WINDOW}.
+         * @param window the maximum number of outstanding resources
+         * @return this Responsebuilder, still requiring a publisher.
+         */
+        RequiredPublisher window(int window);
+
+        /**
+         * Uses the resources emitted by a publisher as primary data. The publisher is subscribed when the response is written,
+         * the data array is closed when it completes. If it fails, writing the response is aborted.
+         * @param publisher the publisher of jsonAPI resources
+         * @return a buildable Responsebuilder.
+         */
+        Buildable data(Flow.Publisher<?> publisher);
+    }
+
+    /**
+     * Interface for a Responsebuilder that meets all requirements to build the response.
+     */
+    public interface Buildable {
+        Response build();
+
+        /**
+         * Adds a link on document level to the generated response body.
+         *
+         * @param name the name of the link.
+         * @param ref  the reference of the link.
+         * @return a buildable Responsebuilder.
+         */
+        Buildable addLink(String name, URI ref);
+    }
+}
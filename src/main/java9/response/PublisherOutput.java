@@ -0,0 +1,214 @@
+package response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import exceptions.JsonApiSerializationException;
+import util.SerializationEvents;
+
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+
+import static util.Assert.assertHasValidJsonApiAnnotations;
+
+/**
+ * Writes a jsonAPI document whose data array is filled by a publisher.
+ * The publisher never has more than window resources outstanding, which are buffered until the writing thread serializes them.
+ * Resources are requested again in batches of half the window, so the publisher keeps producing while resources are written.
+ * The writing thread blocks while the buffer is empty, see {@link JsonApiPublisherResponse}.
+ */
+class PublisherOutput implements StreamingOutput {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Flow.Publisher<?> publisher;
+    private final int window;
+    private final UriInfo uriInfo;
+    private final Map<String, URI> links;
+
+    PublisherOutput(Flow.Publisher<?> publisher, int window, UriInfo uriInfo, Map<String, URI> links) {
+        this.publisher = publisher;
+        this.window = window;
+        this.uriInfo = uriInfo;
+        this.links = links;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        WindowSubscriber subscriber = new WindowSubscriber(window);
+        publisher.subscribe(subscriber);
+
+        Object event = SerializationEvents.get().begin(SerializationEvents.Kind.DOCUMENT);
+        CountingOutputStream counter = new CountingOutputStream(output);
+        JsonGenerator gen = mapper.getFactory().createGenerator(counter);
+        //an aborted document must not be completed when the generator is closed
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        String type = null;
+        int count = 0;
+        try {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("data");
+            Object resource;
+            while((resource = subscriber.next()) != WindowSubscriber.COMPLETE) {
+                JsonNode resourceNode = toResourceNode(resource);
+                if(type == null) {
+                    type = resourceNode.path("type").textValue();
+                }
+                count++;
+                gen.writeTree(resourceNode);
+                if(!subscriber.hasBuffered()) {
+                    //send what is available while waiting for the publisher
+                    gen.flush();
+                }
+            }
+            gen.writeEndArray();
+
+            gen.writeObjectFieldStart("links");
+            for(Map.Entry<String, URI> link: links.entrySet()) {
+                gen.writeStringField(link.getKey(), link.getValue().toString());
+            }
+            gen.writeEndObject();
+            gen.writeEndObject();
+            gen.flush();
+        } catch (IOException | RuntimeException e) {
+            subscriber.cancel();
+            throw e;
+        } finally {
+            SerializationEvents.get().end(event, type, count, counter.count);
+            gen.close();
+        }
+    }
+
+    private JsonNode toResourceNode(Object resource) {
+        assertHasValidJsonApiAnnotations(resource.getClass());
+        ObjectNode resourceNode = (ObjectNode) mapper.valueToTree(resource).get("data");
+        JsonApiResponse.createResourceSelfLink(uriInfo, resourceNode);
+        JsonApiResponse.updateLinks(uriInfo, resourceNode);
+        return resourceNode;
+    }
+
+    /**
+     * Buffers the emitted resources for the writing thread, the publisher is never blocked.
+     */
+    private static final class WindowSubscriber implements Flow.Subscriber<Object> {
+        private static final Object COMPLETE = new Object();
+
+        private final BlockingQueue<Object> buffer;
+        private final int window;
+        private final int batch;
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+        private int consumed;
+
+        private WindowSubscriber(int window) {
+            //room for all requested resources and the terminal signal
+            this.buffer = new ArrayBlockingQueue<>(window + 1);
+            this.window = window;
+            this.batch = Math.max(1, window / 2);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if(this.subscription != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            subscription.request(window);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            if(!buffer.offer(item)) {
+                subscription.cancel();
+                buffer.clear();
+                buffer.offer(new Failure(new IllegalStateException("Publisher emitted more resources than requested")));
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            buffer.offer(new Failure(throwable));
+        }
+
+        @Override
+        public void onComplete() {
+            buffer.offer(COMPLETE);
+        }
+
+        /**
+         * Waits for the next resource and requests the next batch once enough resources were written.
+         * Blocks the writing thread until the publisher emits, completes or fails.
+         * @return the next resource or {@link #COMPLETE}
+         */
+        private Object next() throws InterruptedIOException {
+            Object item;
+            try {
+                item = buffer.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the publisher");
+            }
+            if(item instanceof Failure) {
+                throw new JsonApiSerializationException("Publisher of the primary data failed", ((Failure) item).cause);
+            }
+            if(item != COMPLETE && ++consumed == batch) {
+                consumed = 0;
+                subscription.request(batch);
+            }
+            return item;
+        }
+
+        private boolean hasBuffered() {
+            return !buffer.isEmpty();
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if(current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes of the document for the flight recorder. The generator writes whole buffers, so this costs nothing per token.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
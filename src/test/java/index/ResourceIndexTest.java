@@ -0,0 +1,47 @@
+package index;
+
+import exceptions.JsonApiSerializationException;
+import models.GetterObject;
+import models.SimplePojo;
+import models.TypedIdObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import util.Assert;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResourceIndexTest {
+
+    @Test
+    public void testLoadIndexedResources() {
+        List<Class<?>> resources = ResourceIndex.load();
+
+        System.out.println(resources);
+        assertTrue(resources.contains(SimplePojo.class));
+        assertTrue(resources.contains(GetterObject.class));
+        assertTrue(resources.contains(TypedIdObject.UuidObject.class));
+        assertFalse(resources.contains(ResourceIndexTest.class));
+    }
+
+    @Test
+    public void testWarmUp() {
+        List<Class<?>> resources = ResourceIndex.warmUp();
+
+        assertTrue(resources.contains(SimplePojo.class));
+        assertTrue(resources.contains(TypedIdObject.class));
+    }
+
+    @Test
+    public void testTrustIndexedTypes() {
+        List<Class<?>> trusted = ResourceIndex.trustIndexedTypes();
+
+        assertTrue(trusted.contains(SimplePojo.class));
+        Assert.assertHasValidJsonApiAnnotations(new SimplePojo("trusted"));
+        Assertions.assertThrows(
+                JsonApiSerializationException.class,
+                () -> Assert.assertHasValidJsonApiAnnotations(new Object()));
+    }
+}
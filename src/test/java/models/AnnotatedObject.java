@@ -0,0 +1,34 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiLink;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonApiResource(type = "annotated")
+public class AnnotatedObject {
+    @JsonApiId
+    public String id = "1";
+
+    @JsonProperty("renamed")
+    public String name = "name";
+
+    @JsonIgnore
+    public String secret = "secret";
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String missing = null;
+
+    @JsonApiRelationship
+    public SimplePojo related = new SimplePojo("related");
+
+    @JsonApiLink(name = "external", target = "http://example.com/")
+    public AnnotatedObject link;
+
+    public int getCount() {
+        return 3;
+    }
+}
@@ -0,0 +1,29 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+
+import java.util.List;
+
+@JsonApiResource(type = "articles")
+public class Article {
+
+    @JsonApiId
+    String id;
+
+    public String title;
+
+    @JsonApiRelationship
+    Person author;
+
+    @JsonApiRelationship
+    List<Comment> comments;
+
+    public Article(String id, String title, Person author, List<Comment> comments) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.comments = comments;
+    }
+}
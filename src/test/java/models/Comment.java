@@ -0,0 +1,23 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+
+@JsonApiResource(type = "comments")
+public class Comment {
+
+    @JsonApiId
+    String id;
+
+    public String body;
+
+    @JsonApiRelationship
+    Person author;
+
+    public Comment(String id, String body, Person author) {
+        this.id = id;
+        this.body = body;
+        this.author = author;
+    }
+}
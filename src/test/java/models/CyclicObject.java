@@ -0,0 +1,17 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+
+@JsonApiResource(type = "cyclic")
+public class CyclicObject {
+
+    @JsonApiId
+    String id;
+
+    public CyclicObject partner;
+
+    public CyclicObject(String id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,37 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+import util.ResourceIdentifier;
+
+import java.util.List;
+
+@JsonApiResource(type = "drafts")
+public class Draft {
+    @JsonApiId
+    public long id;
+
+    public String title;
+
+    public List<String> tags;
+
+    private int words;
+
+    @JsonApiRelationship
+    public Object author;
+
+    @JsonApiRelationship
+    public List<ResourceIdentifier> reviewers;
+
+    @JsonApiRelationship
+    public LinkObject source;
+
+    public int getWords() {
+        return words;
+    }
+
+    public void setWords(int words) {
+        this.words = words;
+    }
+}
@@ -0,0 +1,24 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@JsonApiResource(type = "graph")
+public class GraphObject {
+
+    @JsonApiId
+    String id;
+
+    public GraphObject left;
+
+    public GraphObject right;
+
+    public List<GraphObject> children = new ArrayList<>();
+
+    public GraphObject(String id) {
+        this.id = id;
+    }
+}
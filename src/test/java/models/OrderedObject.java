@@ -0,0 +1,18 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+@JsonApiResource(type = "ordered")
+@JsonPropertyOrder(value = {"zeta"}, alphabetic = true)
+public class OrderedObject {
+    @JsonApiId
+    public String id = "1";
+
+    public String beta = "b";
+
+    public String zeta = "z";
+
+    public String alpha = "a";
+}
@@ -0,0 +1,20 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+
+import java.util.Arrays;
+import java.util.List;
+
+@JsonApiResource(type = "paged", location = "paged")
+public class PagedObject {
+    @JsonApiId
+    String id = "1";
+
+    @JsonApiRelationship(pageSize = 2)
+    List<SimplePojo> items = Arrays.asList(new SimplePojo("a"), new SimplePojo("b"), new SimplePojo("c"));
+
+    @JsonApiRelationship(pageSize = 5)
+    List<SimplePojo> few = Arrays.asList(new SimplePojo("d"), new SimplePojo("e"));
+}
@@ -0,0 +1,18 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+
+@JsonApiResource(type = "people", location = "people")
+public class Person {
+
+    @JsonApiId
+    String id;
+
+    public String name;
+
+    public Person(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
@@ -0,0 +1,33 @@
+package models;
+
+import annotations.JsonApiId;
+import annotations.JsonApiRelationship;
+import annotations.JsonApiResource;
+
+import java.util.UUID;
+
+@JsonApiResource(type = "typed", location = "typedLocation")
+public class TypedIdObject {
+
+    @JsonApiId
+    private long id;
+
+    @JsonApiRelationship
+    UuidObject owner = new UuidObject();
+
+    public String name = "typedName";
+
+    public TypedIdObject(long id) {
+        this.id = id;
+    }
+
+    @JsonApiResource(type = "uuid")
+    public static class UuidObject {
+        private final UUID uuid = UUID.fromString("123e4567-e89b-12d3-a456-426655440000");
+
+        @JsonApiId
+        public UUID getUuid() {
+            return uuid;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package request;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.JsonApiDeserializationException;
+import exceptions.RequestLimitExceededException;
+import models.Draft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import response.JsonApiAtomicResponse;
+import util.RequestLimits;
+import util.ResourceIdentifier;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AtomicOperationsTest {
+    private static final AtomicOperations operations = AtomicOperations.of(Draft.class);
+
+    private static final String OPERATIONS = "{\"atomic:operations\":["
+            + "{\"op\":\"add\",\"data\":{\"type\":\"drafts\",\"lid\":\"new\",\"attributes\":{\"title\":\"Hello\"}}},"
+            //members before the type are bound once the type is known
+            + "{\"data\":{\"attributes\":{\"title\":\"Changed\"},\"id\":\"7\",\"type\":\"drafts\"},\"op\":\"update\"},"
+            + "{\"op\":\"update\",\"ref\":{\"type\":\"drafts\",\"id\":\"7\",\"relationship\":\"author\"},"
+            + "\"data\":{\"type\":\"people\",\"id\":\"alice\"}},"
+            + "{\"op\":\"add\",\"ref\":{\"type\":\"drafts\",\"lid\":\"new\",\"relationship\":\"reviewers\"},"
+            + "\"data\":[{\"type\":\"people\",\"id\":\"bob\"}]},"
+            + "{\"op\":\"remove\",\"ref\":{\"type\":\"drafts\",\"id\":\"8\"}}"
+            + "]}";
+
+    @Test
+    public void testReadOperations() throws IOException {
+        List<AtomicOperation> read = operations.read(body(OPERATIONS));
+
+        assertEquals(5, read.size());
+        AtomicOperation add = read.get(0);
+        assertEquals(AtomicOperation.Op.ADD, add.getOp());
+        assertEquals("new", add.getLid());
+        assertEquals("Hello", ((Draft) add.getData()).title);
+
+        AtomicOperation update = read.get(1);
+        assertEquals(AtomicOperation.Op.UPDATE, update.getOp());
+        assertEquals("7", update.getId());
+        assertEquals(7, ((Draft) update.getData()).id);
+        assertEquals("Changed", ((Draft) update.getData()).title);
+
+        AtomicOperation author = read.get(2);
+        assertEquals("author", author.getRelationship());
+        assertEquals("7", author.getId());
+        assertEquals(ResourceIdentifier.of("people", "alice"), author.getData());
+
+        AtomicOperation reviewers = read.get(3);
+        assertTrue(reviewers.isRelationshipOperation());
+        assertEquals("new", reviewers.getLid());
+        assertEquals(Arrays.asList(ResourceIdentifier.of("people", "bob")), reviewers.getData());
+
+        AtomicOperation remove = read.get(4);
+        assertEquals(AtomicOperation.Op.REMOVE, remove.getOp());
+        assertEquals("drafts", remove.getType());
+        assertEquals("8", remove.getId());
+        assertNull(remove.getData());
+    }
+
+    @Test
+    public void testLinkByLid() throws IOException {
+        List<AtomicOperation> read = operations.read(body("{\"atomic:operations\":["
+                + "{\"op\":\"add\",\"data\":{\"type\":\"drafts\",\"lid\":\"first\"}},"
+                + "{\"op\":\"add\",\"data\":{\"type\":\"drafts\",\"lid\":\"second\",\"relationships\":{"
+                + "\"author\":{\"data\":{\"type\":\"drafts\",\"lid\":\"first\"}},"
+                + "\"reviewers\":{\"data\":[{\"type\":\"people\",\"id\":\"bob\"},{\"type\":\"drafts\",\"lid\":\"first\"}]}}}},"
+                + "{\"op\":\"update\",\"ref\":{\"type\":\"drafts\",\"id\":\"7\",\"relationship\":\"author\"},"
+                + "\"data\":{\"type\":\"drafts\",\"lid\":\"second\"}},"
+                + "{\"op\":\"add\",\"ref\":{\"type\":\"drafts\",\"id\":\"7\",\"relationship\":\"reviewers\"},"
+                + "\"data\":[{\"type\":\"drafts\",\"lid\":\"first\"}]}"
+                + "]}"));
+
+        Draft second = (Draft) read.get(1).getData();
+        assertEquals(ResourceIdentifier.ofLid("drafts", "first"), second.author);
+        assertEquals(Arrays.asList(ResourceIdentifier.of("people", "bob"), ResourceIdentifier.ofLid("drafts", "first")), second.reviewers);
+        assertNull(second.reviewers.get(1).getId());
+
+        assertEquals(ResourceIdentifier.ofLid("drafts", "second"), read.get(2).getData());
+        assertEquals(Arrays.asList(ResourceIdentifier.ofLid("drafts", "first")), read.get(3).getData());
+    }
+
+    @Test
+    public void testLidOfResourceField() {
+        Assertions.assertThrows(
+                JsonApiDeserializationException.class,
+                () -> operations.read(body("{\"atomic:operations\":[{\"op\":\"add\",\"data\":{\"type\":\"drafts\",\"relationships\":{"
+                        + "\"source\":{\"data\":{\"type\":\"linkObject\",\"lid\":\"a\"}}}}}]}")));
+    }
+
+    @Test
+    public void testUnknownType() {
+        Assertions.assertThrows(
+                JsonApiDeserializationException.class,
+                () -> operations.read(body("{\"atomic:operations\":[{\"op\":\"add\",\"data\":{\"type\":\"people\"}}]}")));
+    }
+
+    @Test
+    public void testInvalidOp() {
+        Assertions.assertThrows(
+                JsonApiDeserializationException.class,
+                () -> operations.read(body("{\"atomic:operations\":[{\"op\":\"replace\",\"data\":{\"type\":\"drafts\"}}]}")));
+    }
+
+    @Test
+    public void testOperationLimit() {
+        Assertions.assertThrows(
+                RequestLimitExceededException.class,
+                () -> operations.process(body(OPERATIONS), new RequestLimits(1 << 20, 4, 32, 1 << 16), operation -> null));
+    }
+
+    @Test
+    public void testResults() throws IOException {
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getAbsolutePath()).thenReturn(URI.create("http://BASEPATH/operations"));
+
+        List<Object> results = operations.process(body(OPERATIONS), operation -> {
+            if(operation.isRelationshipOperation() || operation.getOp() == AtomicOperation.Op.REMOVE) {
+                return null;
+            }
+            Draft draft = (Draft) operation.getData();
+            draft.id = (operation.getId() != null)? Long.parseLong(operation.getId()) : 1;
+            return draft;
+        });
+        Response response = JsonApiAtomicResponse.getResponse(uriInfo, results);
+
+        assertEquals(JsonApiAtomicResponse.ATOMIC_TYPE, response.getHeaderString("Content-Type"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        JsonNode atomicResults = new ObjectMapper().readTree(output.toByteArray()).get("atomic:results");
+        assertEquals(5, atomicResults.size());
+        assertEquals("1", atomicResults.get(0).get("data").get("id").textValue());
+        assertEquals("Changed", atomicResults.get(1).get("data").get("attributes").get("title").textValue());
+        assertEquals(0, atomicResults.get(4).size());
+    }
+
+    @Test
+    public void testNoResults() {
+        assertEquals(204, JsonApiAtomicResponse.getResponse(mock(UriInfo.class), Arrays.asList(null, null)).getStatus());
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
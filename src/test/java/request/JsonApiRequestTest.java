@@ -0,0 +1,182 @@
+package request;
+
+import exceptions.JsonApiDeserializationException;
+import exceptions.RequestLimitExceededException;
+import models.Draft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import util.JsonUtils;
+import util.RequestLimits;
+import util.ResourceIdentifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonApiRequestTest {
+    private static final String DRAFT = "{\"type\":\"drafts\",\"id\":\"7\","
+            + "\"attributes\":{\"title\":\"Hello\",\"tags\":[\"a\",\"b\"],\"words\":120,\"unknown\":{\"x\":[1]}},"
+            + "\"relationships\":{"
+            + "\"author\":{\"data\":{\"type\":\"people\",\"id\":\"alice\"}},"
+            + "\"reviewers\":{\"links\":{\"self\":\"x\"},\"data\":[{\"type\":\"people\",\"id\":\"bob\"},{\"type\":\"people\",\"id\":\"carol\"}]},"
+            + "\"source\":{\"data\":{\"type\":\"linkObject\",\"id\":\"3\"}}},"
+            + "\"links\":{\"self\":\"drafts/7\"}}";
+
+    @Test
+    public void testReadResource() throws Exception {
+        Draft draft = JsonApiRequest.readResource(body("{\"meta\":{\"a\":1},\"data\":" + DRAFT + "}"), Draft.class);
+
+        assertEquals(7, draft.id);
+        assertEquals("Hello", draft.title);
+        assertEquals(Arrays.asList("a", "b"), draft.tags);
+        assertEquals(120, draft.getWords());
+        assertEquals(ResourceIdentifier.of("people", "alice"), draft.author);
+        assertEquals(Arrays.asList(ResourceIdentifier.of("people", "bob"), ResourceIdentifier.of("people", "carol")), draft.reviewers);
+        assertEquals("3", JsonUtils.getJsonApiId(draft.source));
+    }
+
+    @Test
+    public void testReadResources() throws IOException {
+        List<Draft> drafts = JsonApiRequest.readResources(body("{\"data\":[" + DRAFT + "," + DRAFT + "]}"), Draft.class);
+
+        assertEquals(2, drafts.size());
+        assertEquals("Hello", drafts.get(1).title);
+    }
+
+    @Test
+    public void testForEachBatch() throws IOException {
+        int resources = 10_000;
+        //the document is generated while it is read, it is never held in memory as a whole
+        Enumeration<InputStream> parts = new Enumeration<InputStream>() {
+            private int part;
+
+            @Override
+            public boolean hasMoreElements() {
+                return part <= resources;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String json = (part == 0)? "{\"data\":[" : DRAFT + (part == resources? "]}" : ",");
+                part++;
+                return body(json);
+            }
+        };
+        List<Integer> batchSizes = new ArrayList<>();
+        RequestLimits unlimited = new RequestLimits(Long.MAX_VALUE, Integer.MAX_VALUE, 32, 64 * 1024);
+
+        int count = JsonApiRequest.forEachBatch(new SequenceInputStream(parts), Draft.class, unlimited, 3_000,
+                batch -> batchSizes.add(batch.size()));
+
+        assertEquals(resources, count);
+        assertEquals(Arrays.asList(3_000, 3_000, 3_000, 1_000), batchSizes);
+    }
+
+    @Test
+    public void testForEachResourceConsumesResourcesBeforeExceededLimit() throws IOException {
+        List<Draft> drafts = new ArrayList<>();
+
+        Assertions.assertThrows(RequestLimitExceededException.class, () -> JsonApiRequest.forEachResource(
+                body("{\"data\":[" + DRAFT + "," + DRAFT + "," + DRAFT + "]}"), Draft.class,
+                new RequestLimits(1024 * 1024, 2, 32, 1024), drafts::add));
+        assertEquals(2, drafts.size());
+    }
+
+    @Test
+    public void testNullData() throws IOException {
+        assertNull(JsonApiRequest.readResource(body("{\"data\":null}"), Draft.class));
+    }
+
+    @Test
+    public void testWrongType() {
+        Assertions.assertThrows(
+                JsonApiDeserializationException.class,
+                () -> JsonApiRequest.readResource(body("{\"data\":{\"type\":\"people\",\"id\":\"1\"}}"), Draft.class));
+    }
+
+    @Test
+    public void testInvalidAttribute() {
+        Assertions.assertThrows(
+                JsonApiDeserializationException.class,
+                () -> JsonApiRequest.readResource(body("{\"data\":{\"type\":\"drafts\",\"attributes\":{\"tags\":3}}}"), Draft.class));
+    }
+
+    @Test
+    public void testNestingLimit() {
+        RequestLimits limits = new RequestLimits(1024, 10, 4, 100);
+        Assertions.assertThrows(
+                RequestLimitExceededException.class,
+                () -> JsonApiRequest.readResource(
+                        body("{\"data\":{\"type\":\"drafts\",\"attributes\":{\"tags\":[[\"a\"]]}}}"), Draft.class, limits));
+    }
+
+    @Test
+    public void testResourceLimit() {
+        RequestLimits limits = new RequestLimits(100_000, 1, 8, 100);
+        Assertions.assertThrows(
+                RequestLimitExceededException.class,
+                () -> JsonApiRequest.readResources(body("{\"data\":[" + DRAFT + "," + DRAFT + "]}"), Draft.class, limits));
+    }
+
+    @Test
+    public void testStringLimit() {
+        RequestLimits limits = new RequestLimits(100_000, 10, 8, 4);
+        Assertions.assertThrows(
+                RequestLimitExceededException.class,
+                () -> JsonApiRequest.readResource(body("{\"data\":" + DRAFT + "}"), Draft.class, limits));
+    }
+
+    @Test
+    public void testUnlimitedDocumentSize() throws IOException {
+        RequestLimits limits = new RequestLimits(Long.MAX_VALUE, 10, 8, 100);
+        Draft draft = JsonApiRequest.readResource(body("{\"data\":" + DRAFT + "}"), Draft.class, limits);
+        assertNotNull(draft);
+    }
+
+    @Test
+    public void testEarlyRejection() {
+        RequestLimits limits = new RequestLimits(16 * 1024, 10, 8, 1024 * 1024);
+        EndlessBody endlessBody = new EndlessBody("{\"data\":{\"type\":\"drafts\",\"attributes\":{\"title\":\"");
+        Assertions.assertThrows(
+                RequestLimitExceededException.class,
+                () -> JsonApiRequest.readResource(endlessBody, Draft.class, limits));
+        assertTrue(endlessBody.read <= 16 * 1024 + 1);
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A body starting with a prefix, followed by an endless string value.
+     */
+    private static class EndlessBody extends InputStream {
+        private final byte[] prefix;
+        private long read;
+
+        private EndlessBody(String prefix) {
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return (read < prefix.length)? prefix[(int) read++] : advance('a');
+        }
+
+        private int advance(int b) {
+            read++;
+            return b;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import models.LinkObject;
+import models.PagedObject;
+import models.SimplePojo;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonApiChangeFeedTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testEventsAreSentToAllSubscribers() throws IOException {
+        JsonApiChangeFeed feed = new JsonApiChangeFeed(uriInfo(), Runnable::run);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        feed.subscribe(first);
+        JsonApiChangeFeed.Subscription subscription = feed.subscribe(second);
+
+        feed.publish(new SimplePojo("1"));
+        subscription.close();
+        feed.publish(new SimplePojo("2"));
+
+        List<JsonNode> events = events(first);
+        assertEquals(2, events.size());
+        assertEquals("1", events.get(0).get("data").get("id").textValue());
+        assertEquals("http://example.com/2", events.get(1).get("data").get("links").get("self").textValue());
+        assertEquals("something", events.get(1).get("data").get("attributes").get("anotherAttribute").textValue());
+        assertEquals(1, events(second).size());
+        assertFalse(subscription.isOpen());
+        assertEquals(1, feed.getSubscriberCount());
+    }
+
+    @Test
+    public void testChangesOfTheSameResourceAreCoalesced() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        JsonApiChangeFeed feed = new JsonApiChangeFeed(uriInfo(), 50, TimeUnit.MILLISECONDS, scheduler);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        feed.subscribe(output);
+
+        SimplePojo first = new SimplePojo("1");
+        for(int i = 0; i < 3; i++) {
+            first.yetAnother = i;
+            feed.publish(first);
+            feed.publish(new SimplePojo("2"));
+        }
+        //the flush and the writes it submits run on the single thread of the scheduler before a later task
+        scheduler.schedule(() -> { }, 500, TimeUnit.MILLISECONDS).get();
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+
+        List<JsonNode> events = events(output);
+        assertEquals(2, events.size());
+        assertEquals("1", events.get(0).get("data").get("id").textValue());
+        assertEquals(2, events.get(0).get("data").get("attributes").get("yetAnother").intValue());
+        assertEquals("2", events.get(1).get("data").get("id").textValue());
+    }
+
+    @Test
+    public void testFailingSubscribersAreDropped() {
+        JsonApiChangeFeed feed = new JsonApiChangeFeed(uriInfo(), Runnable::run);
+        JsonApiChangeFeed.Subscription subscription = feed.subscribe(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Client disconnected");
+            }
+        });
+
+        feed.publish(new SimplePojo("1"));
+
+        assertFalse(subscription.isOpen());
+        assertEquals(0, feed.getSubscriberCount());
+    }
+
+    @Test
+    public void testLinksAreResolved() throws IOException {
+        JsonApiChangeFeed feed = new JsonApiChangeFeed(uriInfo(), Runnable::run);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        feed.subscribe(output);
+
+        feed.publish(new PagedObject());
+        feed.publish(new LinkObject("7"));
+
+        String[] events = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n\n");
+        assertEquals("event: paged", events[0].split("\n")[0]);
+        JsonNode paged = mapper.readTree(events[0].split("\n")[1].substring("data: ".length())).get("data");
+        assertEquals("http://example.com/1", paged.get("links").get("self").textValue());
+        assertEquals("http://example.com/paged/1/items", paged.get("relationships").get("items").get("links").get("related").textValue());
+        JsonNode link = mapper.readTree(events[1].split("\n")[1].substring("data: ".length())).get("data");
+        assertEquals("http://example.com/otherLocation", link.get("links").get("other").textValue());
+        assertEquals("http://example.com/7", link.get("links").get("self").textValue());
+    }
+
+    @Test
+    public void testSlowSubscribersAreDropped() throws IOException {
+        //the writing tasks only run when the test runs them, like with a client that stopped reading
+        List<Runnable> tasks = new ArrayList<>();
+        JsonApiChangeFeed feed = new JsonApiChangeFeed(uriInfo(), tasks::add);
+        AtomicBoolean closed = new AtomicBoolean();
+        ByteArrayOutputStream slow = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        JsonApiChangeFeed.Subscription subscription = feed.subscribe(slow);
+
+        for(int i = 0; i <= JsonApiChangeFeed.MAX_QUEUED_EVENTS; i++) {
+            feed.publish(new SimplePojo(Integer.toString(i)));
+        }
+
+        assertFalse(subscription.isOpen());
+        assertEquals(0, feed.getSubscriberCount());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertTrue(closed.get());
+        assertEquals(0, slow.size());
+    }
+
+    private static List<JsonNode> events(ByteArrayOutputStream output) throws IOException {
+        List<JsonNode> documents = new ArrayList<>();
+        for(String event: new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n\n")) {
+            String[] lines = event.split("\n");
+            assertEquals("event: simple", lines[0]);
+            assertTrue(lines[1].startsWith("data: "));
+            documents.add(mapper.readTree(lines[1].substring("data: ".length())));
+        }
+        return documents;
+    }
+
+    private static UriInfo uriInfo() {
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getAbsolutePath()).thenReturn(URI.create("http://example.com/changes"));
+        return uriInfo;
+    }
+}
@@ -0,0 +1,111 @@
+package response;
+
+import org.junit.jupiter.api.Test;
+import response.CompressingOutputStream.Encoding;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonApiCompressionTest {
+
+    @Test
+    public void testNegotiate() {
+        assertEquals(Encoding.GZIP, JsonApiCompression.negotiate("gzip, deflate, br"));
+        assertEquals(Encoding.DEFLATE, JsonApiCompression.negotiate("deflate, gzip;q=0"));
+        assertEquals(Encoding.GZIP, JsonApiCompression.negotiate("*"));
+        assertNull(JsonApiCompression.negotiate("identity"));
+        assertNull(JsonApiCompression.negotiate(null));
+    }
+
+    @Test
+    public void testTinyBodiesAreNotCompressed() throws IOException {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] body = "{\"data\":null}".getBytes(StandardCharsets.UTF_8);
+
+        CompressingOutputStream compressing = new CompressingOutputStream(out, Encoding.GZIP, headers);
+        compressing.write(body);
+        compressing.flush();
+        assertEquals(0, out.size());
+        compressing.finish();
+
+        assertArrayEquals(body, out.toByteArray());
+        assertFalse(headers.containsKey(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testGzipIsWrittenWhileTheBodyIsWritten() throws IOException {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] body = document(20_000);
+
+        CompressingOutputStream compressing = new CompressingOutputStream(out, Encoding.GZIP, headers);
+        compressing.write(body, 0, body.length / 2);
+        compressing.flush();
+        //the first half can be decompressed before the body is finished
+        assertEquals(body.length / 2, readAll(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), body.length / 2).length);
+        compressing.write(body, body.length / 2, body.length - body.length / 2);
+        compressing.finish();
+
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(out.size() < body.length / 10);
+        assertArrayEquals(body, readAll(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), -1));
+    }
+
+    @Test
+    public void testLargeDeflateBodies() throws IOException {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] body = document(50_000);
+        assertTrue(body.length > CompressingOutputStream.FAST_LEVEL_BYTES);
+
+        CompressingOutputStream compressing = new CompressingOutputStream(out, Encoding.DEFLATE, headers);
+        for(int offset = 0; offset < body.length; offset += 4096) {
+            compressing.write(body, offset, Math.min(4096, body.length - offset));
+        }
+        compressing.close();
+
+        assertEquals("deflate", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(body, readAll(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray())), -1));
+    }
+
+    private static byte[] document(int resources) {
+        StringBuilder document = new StringBuilder("{\"data\":[");
+        for(int i = 0; i < resources; i++) {
+            if(i > 0) {
+                document.append(',');
+            }
+            document.append("{\"type\":\"simple\",\"id\":\"").append(i)
+                    .append("\",\"attributes\":{\"anotherAttribute\":\"something\",\"yetAnother\":42}}");
+        }
+        return document.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param limit the number of bytes to read, or -1 to read until the end
+     */
+    private static byte[] readAll(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while((limit < 0 || bytes.size() < limit)
+                && (read = in.read(buffer, 0, limit < 0? buffer.length : Math.min(buffer.length, limit - bytes.size()))) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
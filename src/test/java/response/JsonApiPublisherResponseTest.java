@@ -0,0 +1,147 @@
+package response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exceptions.JsonApiSerializationException;
+import models.SimplePojo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonApiPublisherResponseTest {
+    private static UriInfo uriInfo = mock(UriInfo.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeAll
+    public static void setUp() {
+        when(uriInfo.getAbsolutePath()).thenReturn(URI.create("http://BASEPATH"));
+    }
+
+    @Test
+    public void testPublishedData() throws IOException {
+        SubmissionPublisher<SimplePojo> publisher = new SubmissionPublisher<>();
+        Response result = JsonApiPublisherResponse
+                .getResponse(uriInfo)
+                .data(publisher)
+                .build();
+
+        assertEquals("application/vnd.api+json", result.getHeaderString("Content-Type"));
+        new Thread(() -> {
+            awaitSubscriber(publisher);
+            for(int i = 0; i < 100; i++) {
+                publisher.submit(new SimplePojo(String.valueOf(i)));
+            }
+            publisher.close();
+        }).start();
+
+        JsonNode resultNode = mapper.readTree(write(result));
+        System.out.println(resultNode);
+        assertEquals(100, resultNode.get("data").size());
+        assertEquals("simple", resultNode.get("data").get(0).get("type").textValue());
+        assertEquals("99", resultNode.get("data").get(99).get("id").textValue());
+        assertEquals("http://BASEPATH/99", resultNode.get("data").get(99).get("links").get("self").textValue());
+        assertEquals("http://BASEPATH", resultNode.get("links").get("self").textValue());
+    }
+
+    @Test
+    public void testRequestWindow() throws IOException {
+        RangePublisher publisher = new RangePublisher(10);
+        Response result = JsonApiPublisherResponse
+                .getResponse(uriInfo)
+                .window(4)
+                .data(publisher)
+                .build();
+
+        JsonNode resultNode = mapper.readTree(write(result));
+        assertEquals(10, resultNode.get("data").size());
+        assertTrue(publisher.maxOutstanding <= 4);
+    }
+
+    @Test
+    public void testPublisherError() {
+        SubmissionPublisher<SimplePojo> publisher = new SubmissionPublisher<>();
+        Response result = JsonApiPublisherResponse
+                .getResponse(uriInfo)
+                .data(publisher)
+                .build();
+
+        new Thread(() -> {
+            awaitSubscriber(publisher);
+            publisher.submit(new SimplePojo("1"));
+            publisher.closeExceptionally(new IllegalStateException("database gone"));
+        }).start();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assertions.assertThrows(
+                JsonApiSerializationException.class,
+                () -> ((StreamingOutput) result.getEntity()).write(output));
+        //the aborted document is incomplete, even if the first resource was already flushed
+        Assertions.assertThrows(IOException.class, () -> mapper.readTree(output.toString(StandardCharsets.UTF_8)));
+    }
+
+    private static void awaitSubscriber(SubmissionPublisher<?> publisher) {
+        //items submitted before the response is written would be dropped
+        while(!publisher.hasSubscribers()) {
+            Thread.yield();
+        }
+    }
+
+    private String write(Response response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Emits the requested resources synchronously and records the highest number of outstanding requests.
+     */
+    private static class RangePublisher implements Flow.Publisher<SimplePojo> {
+        private final int count;
+        private int emitted;
+        private boolean completed;
+        private long outstanding;
+        private long maxOutstanding;
+
+        private RangePublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super SimplePojo> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    outstanding += n;
+                    maxOutstanding = Math.max(maxOutstanding, outstanding);
+                    while(outstanding > 0 && emitted < count) {
+                        outstanding--;
+                        subscriber.onNext(new SimplePojo(String.valueOf(emitted++)));
+                    }
+                    if(emitted == count && !completed) {
+                        completed = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+    }
+}
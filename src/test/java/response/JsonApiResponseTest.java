@@ -3,20 +3,32 @@ package response;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
 import exceptions.JsonApiSerializationException;
+import models.Article;
+import models.Comment;
 import models.LinkObject;
+import models.Person;
 import models.SimplePojo;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import util.ResourceIdentifier;
+import util.TraversalLimits;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -236,8 +248,249 @@ public class JsonApiResponseTest {
                 resultNode.get("data").get("relationships").get("SimplePojo").get("links").get("self").textValue());
     }
 
+    @Test
+    public void testIncludeNestedPaths() {
+        Person alice = new Person("alice", "Alice");
+        Person bob = new Person("bob", "Bob");
+        List<Article> articles = Arrays.asList(
+                new Article("1", "First", alice, Arrays.asList(new Comment("c1", "Nice", bob), new Comment("c2", "Thanks", alice))),
+                new Article("2", "Second", bob, Collections.singletonList(new Comment("c3", "Again", bob))));
+
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .data(articles)
+                .include("comments.author,author")
+                .build();
+
+        JsonNode resultNode = getEntityNode(result);
+        System.out.println(resultNode);
+        JsonNode included = resultNode.get("included");
+        assertEquals(5, included.size());
+        assertEquals("comments", included.get(0).get("type").textValue());
+        assertEquals("c1", included.get(0).get("id").textValue());
+        assertEquals("c3", included.get(2).get("id").textValue());
+        assertEquals("people", included.get(3).get("type").textValue());
+        assertEquals("Alice", included.get(3).get("attributes").get("name").textValue());
+        assertEquals("http://BASEPATH/people/alice", included.get(3).get("links").get("self").textValue());
+    }
+
+    @Test
+    public void testIncludeAddedRelationship() {
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .data(new SimplePojo("relatee"))
+                .addRelationship("rel", new SimplePojo("related"))
+                .include("rel")
+                .build();
+
+        JsonNode resultNode = getEntityNode(result);
+        System.out.println(resultNode);
+        assertEquals(1, resultNode.get("included").size());
+        assertEquals("related", resultNode.get("included").get(0).get("id").textValue());
+    }
+
+    @Test
+    public void testIncludeUnknownRelationship() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> JsonApiResponse
+                        .getResponse(uriInfo)
+                        .data(simplePojo)
+                        .include("unknown")
+                        .build());
+    }
+
+    @Test
+    public void testIncludePathBeyondMaxDepth() {
+        TraversalLimits defaults = TraversalLimits.defaults();
+        TraversalLimits.setDefaults(new TraversalLimits(2, defaults.getMaxFanOut()));
+        try {
+            Assertions.assertThrows(
+                    IllegalArgumentException.class,
+                    () -> JsonApiResponse
+                            .getResponse(uriInfo)
+                            .data(simplePojo)
+                            .include("comments.author.comments"));
+        } finally {
+            TraversalLimits.setDefaults(defaults);
+        }
+    }
+
+    @Test
+    public void testIncludeLoadedIdentifiers() {
+        AtomicInteger loaderCalls = new AtomicInteger();
+        RelationshipLoader<Person> peopleLoader = new RelationshipLoader<Person>() {
+            @Override
+            public String type() {
+                return "people";
+            }
+
+            @Override
+            public Map<String, Person> load(Set<String> ids) {
+                loaderCalls.incrementAndGet();
+                Map<String, Person> people = new HashMap<>();
+                for(String id: ids) {
+                    if(!id.equals("unknown")) {
+                        people.put(id, new Person(id, id.toUpperCase()));
+                    }
+                }
+                return people;
+            }
+        };
+
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .data(new SimplePojo("relatee"))
+                .addRelationship("people", Arrays.asList(ResourceIdentifier.of("people", "alice"),
+                        ResourceIdentifier.of(Person.class, "bob"), ResourceIdentifier.of("people", "unknown")))
+                .include(ResourceIdentifier.of("people", "alice"))
+                .include("people")
+                .withLoader(peopleLoader)
+                .build();
+
+        JsonNode resultNode = getEntityNode(result);
+        System.out.println(resultNode);
+        assertEquals("alice", resultNode.get("data").get("relationships").get("people").get("data").get(0).get("id").textValue());
+        JsonNode included = resultNode.get("included");
+        assertEquals(2, included.size());
+        assertEquals("ALICE", included.get(0).get("attributes").get("name").textValue());
+        assertEquals("bob", included.get(1).get("id").textValue());
+        assertEquals(1, loaderCalls.get());
+    }
+
+    @Test
+    public void testIncludeSkipsLocalIdentifiers() {
+        Set<String> requested = new HashSet<>();
+        RelationshipLoader<Person> peopleLoader = new RelationshipLoader<Person>() {
+            @Override
+            public String type() {
+                return "people";
+            }
+
+            @Override
+            public Map<String, Person> load(Set<String> ids) {
+                requested.addAll(ids);
+                return Collections.singletonMap("alice", new Person("alice", "Alice"));
+            }
+        };
+
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .data(new SimplePojo("relatee"))
+                .addRelationship("people", Arrays.asList(ResourceIdentifier.of("people", "alice"), ResourceIdentifier.ofLid("people", "new")))
+                .addRelationship("author", ResourceIdentifier.ofLid("people", "new"), URI.create("/people"))
+                .include("people")
+                .include("author")
+                .withLoader(peopleLoader)
+                .build();
+
+        JsonNode resultNode = getEntityNode(result);
+        assertEquals(Collections.singleton("alice"), requested);
+        JsonNode relationships = resultNode.get("data").get("relationships");
+        assertEquals("new", relationships.get("people").get("data").get(1).get("lid").textValue());
+        assertEquals("new", relationships.get("author").get("data").get("lid").textValue());
+        assertFalse(relationships.get("author").has("links"));
+        assertEquals(1, resultNode.get("included").size());
+    }
+
+    @Test
+    public void testIncludeWithoutLoader() {
+        Assertions.assertThrows(
+                JsonApiSerializationException.class,
+                () -> JsonApiResponse
+                        .getResponse(uriInfo)
+                        .data(simplePojo)
+                        .addRelationship("author", ResourceIdentifier.of("people", "alice"))
+                        .include("author")
+                        .build());
+    }
+
+    @Test
+    public void testServerTiming() {
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .withServerTiming()
+                .data(new SimplePojo("relatee"))
+                .addRelationship("rel", new SimplePojo("related"))
+                .include("rel")
+                .build();
+
+        String serverTiming = result.getHeaderString("Server-Timing");
+        System.out.println(serverTiming);
+        assertTrue(serverTiming.matches("validation;dur=\\d+\\.\\d{3}, data;dur=\\d+\\.\\d{3}, links;dur=\\d+\\.\\d{3}, "
+                + "relationships;dur=\\d+\\.\\d{3}, includes;dur=\\d+\\.\\d{3}"));
+    }
+
+    @Test
+    public void testNoServerTimingByDefault() {
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .data(simplePojo)
+                .build();
+
+        assertEquals(null, result.getHeaderString("Server-Timing"));
+    }
+
     private JsonNode getEntityNode(Response response) {
         return (JsonNode) response.getEntity();
 
     }
+
+    @Test
+    public void testAddRelationshipsToCollection() {
+        List<SimplePojo> list = Arrays.asList(new SimplePojo("1"), new SimplePojo("2"), new SimplePojo("3"));
+        Map<String, Object> authors = new HashMap<>();
+        authors.put("1", new Person("alice", "Alice"));
+        authors.put("2", new Person("bob", "Bob"));
+
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .data(list)
+                .addRelationships("author", authors)
+                .addRelationships("self", (SimplePojo pojo) -> pojo, URI.create("http://www.location.com"))
+                .include("author")
+                .build();
+
+        JsonNode data = getEntityNode(result).get("data");
+        assertEquals("alice", data.get(0).get("relationships").get("author").get("data").get("id").textValue());
+        assertEquals("bob", data.get(1).get("relationships").get("author").get("data").get("id").textValue());
+        assertTrue(data.get(2).get("relationships").get("author").get("data").isNull());
+        assertEquals("3", data.get(2).get("relationships").get("self").get("data").get("id").textValue());
+        assertEquals("http://www.location.com/3", data.get(2).get("relationships").get("self").get("links").get("self").textValue());
+        JsonNode included = getEntityNode(result).get("included");
+        assertEquals(2, included.size());
+        assertEquals("Bob", included.get(1).get("attributes").get("name").textValue());
+        assertEquals("Alice", included.get(0).get("attributes").get("name").textValue());
+    }
+
+    @Test
+    public void testAddSingleRelationshipToCollection() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> JsonApiResponse
+                        .getResponse(uriInfo)
+                        .data(Collections.singletonList(simplePojo))
+                        .addRelationship("rel", new SimplePojo("related"))
+        );
+    }
+
+    @Test
+    public void testRelationshipPageSize() {
+        Person alice = new Person("alice", "Alice");
+        Article article = new Article("1", "First", alice,
+                Arrays.asList(new Comment("c1", "Nice", alice), new Comment("c2", "Thanks", alice)));
+
+        Response result = JsonApiResponse
+                .getResponse(uriInfo)
+                .withRelationshipPageSize(1)
+                .data(article)
+                .build();
+
+        JsonNode comments = getEntityNode(result).get("data").get("relationships").get("comments");
+        assertEquals(1, comments.get("data").size());
+        assertEquals(2, comments.get("meta").get("count").intValue());
+        assertEquals("http://BASEPATH/articles/1/comments", comments.get("links").get("related").textValue());
+        assertEquals("http://BASEPATH/articles/1/relationships/comments?page%5Boffset%5D=1&page%5Blimit%5D=1",
+                comments.get("links").get("next").textValue());
+    }
 }
@@ -0,0 +1,108 @@
+package response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import models.SimplePojo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonApiTemplateTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testRenderForOtherHost() throws IOException {
+        Response built = JsonApiResponse
+                .getResponse(uriInfo("http://first.example/simple"))
+                .data(Arrays.asList(new SimplePojo("1"), new SimplePojo("2")))
+                .addLink("external", URI.create("http://elsewhere.example/docs"))
+                .build();
+        JsonApiTemplate template = JsonApiTemplate.freeze(built, uriInfo("http://first.example/simple"));
+
+        Response rendered = template.render(uriInfo("https://second.example:8443/simple"));
+
+        assertEquals(200, rendered.getStatus());
+        assertEquals(JsonApiResponse.JSONAPI_TYPE, rendered.getHeaderString("Content-Type"));
+        JsonNode document = mapper.readTree((byte[]) rendered.getEntity());
+        assertEquals("https://second.example:8443/simple", document.get("links").get("self").textValue());
+        assertEquals("http://elsewhere.example/docs", document.get("links").get("external").textValue());
+        assertEquals("https://second.example:8443/2", document.get("data").get(1).get("links").get("self").textValue());
+        assertEquals("something", document.get("data").get(1).get("attributes").get("anotherAttribute").textValue());
+        //the built response is not changed by freezing it
+        assertEquals("http://first.example/simple", ((JsonNode) built.getEntity()).get("links").get("self").textValue());
+    }
+
+    @Test
+    public void testTemplatesAreBuiltOnceUntilInvalidated() {
+        JsonApiTemplates templates = new JsonApiTemplates();
+        AtomicInteger builds = new AtomicInteger();
+        UriInfo uriInfo = uriInfo("http://first.example/simple");
+
+        for(int i = 0; i < 3; i++) {
+            templates.render("simple", uriInfo, info -> {
+                builds.incrementAndGet();
+                return JsonApiResponse.getResponse(info).data(new SimplePojo("1")).build();
+            });
+        }
+        assertEquals(1, builds.get());
+
+        templates.invalidate("simple");
+        templates.render("simple", uriInfo, info -> {
+            builds.incrementAndGet();
+            return JsonApiResponse.getResponse(info).data(new SimplePojo("1")).build();
+        });
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testInvalidateDuringBuild() throws IOException {
+        JsonApiTemplates templates = new JsonApiTemplates();
+        AtomicInteger builds = new AtomicInteger();
+        UriInfo uriInfo = uriInfo("http://first.example/simple");
+
+        templates.render("simple", uriInfo, info -> {
+            builds.incrementAndGet();
+            //the data changes while the response is built from the old data
+            templates.invalidate("simple");
+            return JsonApiResponse.getResponse(info).data(new SimplePojo("1")).build();
+        });
+        templates.render("simple", uriInfo, info -> {
+            builds.incrementAndGet();
+            return JsonApiResponse.getResponse(info).data(new SimplePojo("2")).build();
+        });
+        Response rendered = templates.render("simple", uriInfo, info -> {
+            throw new AssertionError("The template is built already");
+        });
+
+        assertEquals(2, builds.get());
+        assertEquals("2", mapper.readTree((byte[]) rendered.getEntity()).get("data").get("id").textValue());
+    }
+
+    @Test
+    public void testFailedBuildIsNotKept() {
+        JsonApiTemplates templates = new JsonApiTemplates();
+        UriInfo uriInfo = uriInfo("http://first.example/simple");
+
+        Assertions.assertThrows(IllegalStateException.class, () -> templates.render("simple", uriInfo, info -> {
+            throw new IllegalStateException("Data is not available");
+        }));
+        assertNotNull(templates.render("simple", uriInfo, info -> JsonApiResponse.getResponse(info).data(new SimplePojo("1")).build()));
+    }
+
+    private static UriInfo uriInfo(String absolutePath) {
+        UriInfo uriInfo = mock(UriInfo.class);
+        when(uriInfo.getAbsolutePath()).thenReturn(URI.create(absolutePath));
+        return uriInfo;
+    }
+}
@@ -0,0 +1,62 @@
+package serializer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import models.RelationshipObject;
+import models.SimplePojo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonApiDeltaTest {
+
+    @Test
+    public void testChangedAttribute() {
+        SimplePojo previous = new SimplePojo("id");
+        SimplePojo current = new SimplePojo("id");
+        current.yetAnother = 43;
+
+        JsonNode result = JsonApiDelta.createUpdateDocument(previous, current);
+
+        System.out.println(result);
+        assertEquals("simple", result.get("data").get("type").textValue());
+        assertEquals("id", result.get("data").get("id").textValue());
+        assertEquals(1, result.get("data").get("attributes").size());
+        assertEquals(43, result.get("data").get("attributes").get("yetAnother").asInt());
+        assertFalse(result.get("data").has("relationships"));
+    }
+
+    @Test
+    public void testUnchangedResource() {
+        JsonNode result = JsonApiDelta.createUpdateDocument(new SimplePojo("id"), new SimplePojo("id"));
+
+        System.out.println(result);
+        assertEquals(2, result.get("data").size());
+    }
+
+    @Test
+    public void testChangedRelationship() {
+        RelationshipObject previous = new RelationshipObject(Arrays.asList(new SimplePojo("1"), new SimplePojo("2")));
+        RelationshipObject current = new RelationshipObject(Arrays.asList(new SimplePojo("1"), new SimplePojo("3")));
+
+        JsonNode result = JsonApiDelta.createUpdateDocument(previous, current);
+
+        System.out.println(result);
+        assertFalse(result.get("data").has("attributes"));
+        assertEquals(1, result.get("data").get("relationships").size());
+        assertTrue(result.get("data").get("relationships").get("dangerous").get("data").isArray());
+        assertEquals("3",
+                result.get("data").get("relationships").get("dangerous").get("data").get(1).get("id").textValue());
+    }
+
+    @Test
+    public void testDifferentIds() {
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> JsonApiDelta.createUpdateDocument(new SimplePojo("1"), new SimplePojo("2")));
+    }
+}
@@ -0,0 +1,83 @@
+package serializer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import models.AnnotatedObject;
+import models.SimplePojo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonApiModuleTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper().registerModule(new JsonApiModule());
+
+    @Test
+    public void testAttributesRespectJacksonAnnotations() {
+        JsonNode data = mapper.valueToTree(new AnnotatedObject()).get("data");
+
+        assertEquals("annotated", data.get("type").textValue());
+        assertEquals("1", data.get("id").textValue());
+        JsonNode attributes = data.get("attributes");
+        assertEquals("name", attributes.get("renamed").textValue());
+        assertEquals(3, attributes.get("count").intValue());
+        assertFalse(attributes.has("secret"));
+        assertFalse(attributes.has("missing"));
+        assertFalse(attributes.has("id"));
+        assertFalse(attributes.has("related"));
+        assertFalse(attributes.has("link"));
+        assertEquals(2, attributes.size());
+        assertEquals("related", data.get("relationships").get("related").get("data").get("id").textValue());
+        assertTrue(data.get("links").has("external"));
+    }
+
+    @Test
+    public void testAttributesApplyModifiersOfTheMapper() {
+        SimpleModule hideCount = new SimpleModule().setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+                beanProperties.removeIf(property -> property.getName().equals("count"));
+                return beanProperties;
+            }
+        });
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JsonApiModule()).registerModule(hideCount);
+
+        JsonNode attributes = mapper.valueToTree(new AnnotatedObject()).get("data").get("attributes");
+
+        assertEquals("name", attributes.get("renamed").textValue());
+        assertFalse(attributes.has("count"));
+        assertFalse(attributes.has("id"));
+    }
+
+    @Test
+    public void testResourceCollection() throws IOException {
+        List<SimplePojo> pojos = Arrays.asList(new SimplePojo("1"), new SimplePojo("2"));
+        String json = mapper.writerFor(new TypeReference<List<SimplePojo>>() {}).writeValueAsString(pojos);
+        JsonNode data = mapper.readTree(json).get("data");
+
+        assertTrue(data.isArray());
+        assertEquals(2, data.size());
+        assertEquals("2", data.get(1).get("id").textValue());
+        assertEquals(42, data.get(1).get("attributes").get("yetAnother").intValue());
+    }
+
+    @Test
+    public void testOtherCollectionsAreUnchanged() {
+        JsonNode result = mapper.valueToTree(Arrays.asList("a", "b"));
+
+        assertTrue(result.isArray());
+        assertEquals("b", result.get(1).textValue());
+    }
+}
@@ -0,0 +1,160 @@
+package serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import models.GetterObject;
+import models.LinkObject;
+import models.RelationshipObject;
+import models.SimplePojo;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import response.JsonApiResponse;
+
+import javax.ws.rs.core.UriInfo;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the bytes allocated per serialized resource against the budgets in allocation-budgets.properties.
+ * Budgets are bytes per resource. When an intended change needs more memory, the budget has to be raised explicitly.
+ */
+public class JsonApiSerializerAllocationTest {
+    private static final int WARMUP_ITERATIONS = 5_000;
+    private static final int MEASURED_ITERATIONS = 2_000;
+    private static final int ROUNDS = 3;
+    private static final int COLLECTION_SIZE = 20;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Properties budgets = new Properties();
+    private static final UriInfo uriInfo = (UriInfo) Proxy.newProxyInstance(
+            UriInfo.class.getClassLoader(),
+            new Class[]{UriInfo.class},
+            (proxy, method, args) -> URI.create("http://BASEPATH"));
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(new JsonApiSerializer(Collection.class));
+        mapper.registerModule(module);
+
+        try(InputStream budgetFile = JsonApiSerializerAllocationTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(budgetFile);
+        }
+        if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        }
+    }
+
+    @Test
+    public void testSimplePojoAllocations() {
+        assertSerializationBudget("simple", i -> new SimplePojo(Integer.toString(i)));
+    }
+
+    @Test
+    public void testGetterObjectAllocations() {
+        assertSerializationBudget("getter", i -> new GetterObject());
+    }
+
+    @Test
+    public void testLinkObjectAllocations() {
+        assertSerializationBudget("link", i -> new LinkObject(Integer.toString(i)));
+    }
+
+    @Test
+    public void testRelationshipObjectAllocations() {
+        assertSerializationBudget("relationship", i -> new RelationshipObject());
+    }
+
+    @Test
+    public void testSharedRelationshipAllocations() {
+        //every resource refers to the same related resource, whose identifier is resolved once per document
+        SimplePojo shared = new SimplePojo("shared");
+        assertSerializationBudget("shared", i -> new RelationshipObject(shared));
+    }
+
+    @Test
+    public void testResponseAllocations() {
+        SimplePojo single = new SimplePojo("single");
+        List<SimplePojo> collection = createCollection(i -> new SimplePojo(Integer.toString(i)));
+
+        assertBudget("response.single", 1,
+                () -> JsonApiResponse.getResponse(uriInfo).data(single).build());
+        assertBudget("response.collection", COLLECTION_SIZE,
+                () -> JsonApiResponse.getResponse(uriInfo).data(collection).build());
+    }
+
+    private void assertSerializationBudget(String name, IntFunction<Object> factory) {
+        Object single = factory.apply(0);
+        List<Object> collection = createCollection(factory);
+
+        assertBudget(name + ".single", 1, () -> serialize(single));
+        assertBudget(name + ".collection", COLLECTION_SIZE, () -> serialize(collection));
+    }
+
+    private static void serialize(Object value) {
+        try {
+            mapper.writeValue(DiscardingOutputStream.INSTANCE, value);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static <T> List<T> createCollection(IntFunction<T> factory) {
+        List<T> collection = new ArrayList<>();
+        for(int i = 0; i < COLLECTION_SIZE; i++) {
+            collection.add(factory.apply(i));
+        }
+        return collection;
+    }
+
+    private void assertBudget(String name, int resources, Runnable operation) {
+        assumeTrue(threadBean != null && threadBean.isThreadAllocatedMemorySupported(),
+                "thread allocation measurement is not supported by this JVM");
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long budget = Long.parseLong(budgets.getProperty(name));
+
+        for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        //the minimum of several rounds filters out one-time allocations, e.g. by class loading or deoptimization
+        long bytesPerResource = Long.MAX_VALUE;
+        long threadId = Thread.currentThread().getId();
+        for(int round = 0; round < ROUNDS; round++) {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for(int i = 0; i < MEASURED_ITERATIONS; i++) {
+                operation.run();
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+            bytesPerResource = Math.min(bytesPerResource, allocated / ((long) MEASURED_ITERATIONS * resources));
+        }
+
+        System.out.println(name + ": " + bytesPerResource + " bytes per resource (budget " + budget + ")");
+        assertTrue(bytesPerResource <= budget,
+                name + " allocates " + bytesPerResource + " bytes per resource, budget is " + budget);
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        private static final DiscardingOutputStream INSTANCE = new DiscardingOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -8,13 +8,17 @@ import models.*;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import util.TraversalLimits;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class JsonApiSerializerTest {
@@ -46,6 +50,20 @@ public class JsonApiSerializerTest {
         assertEquals(42, result.get("data").get("attributes").get("yetAnother").asInt());
     }
 
+    @Test
+    public void testMixedCollectionSerialization() {
+        List<Object> resources = Arrays.asList(new SimplePojo("1"), new LinkObject("2"), new SimplePojo("3"));
+
+        JsonNode data = mapper.valueToTree(resources).get("data");
+
+        assertEquals("simple", data.get(0).get("type").textValue());
+        assertEquals("linkObject", data.get(1).get("type").textValue());
+        assertEquals("linkLocation/2", data.get(1).get("links").get("self").textValue());
+        assertEquals("otherLocation", data.get(1).get("links").get("other").textValue());
+        assertEquals("simple", data.get(2).get("type").textValue());
+        assertEquals(42, data.get(2).get("attributes").get("yetAnother").intValue());
+    }
+
     @Test
     public void testCollectionSerialization() {
         List<SimplePojo> pojoList = Arrays.asList(
@@ -102,6 +120,25 @@ public class JsonApiSerializerTest {
         assertEquals(11, dataNode.get("attributes").get("doubleAttr").asInt());
     }
 
+    @Test
+    public void testDeterministicOrder() {
+        JsonNode getterResult = mapper.valueToTree(new GetterObject());
+        assertEquals(Arrays.asList("doubleAttr", "name", "number", "stringAttr"),
+                fieldNames(getterResult.get("data").get("attributes")));
+
+        JsonNode linkResult = mapper.valueToTree(new LinkObject());
+        assertEquals(Arrays.asList("other", "unnamed", "self"), fieldNames(linkResult.get("data").get("links")));
+
+        JsonNode orderedResult = mapper.valueToTree(new OrderedObject());
+        assertEquals(Arrays.asList("zeta", "alpha", "beta"), fieldNames(orderedResult.get("data").get("attributes")));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
     @Test
     public void testLinkSerialization() {
         LinkObject linkObject = new LinkObject();
@@ -185,4 +222,150 @@ public class JsonApiSerializerTest {
         assertEquals(4, result.get("data").get(0).get("relationships").size());
         assertEquals(4, result.get("data").get(1).get("relationships").size());
     }
+
+    @Test
+    public void testTypedIdSerialization() {
+        TypedIdObject typed = new TypedIdObject(9007199254740993L);
+        JsonNode result = mapper.valueToTree(typed);
+
+        System.out.println(result);
+        assertTrue(result.get("data").get("id").isTextual());
+        assertEquals("9007199254740993", result.get("data").get("id").textValue());
+        assertEquals("typedLocation/9007199254740993", result.get("data").get("links").get("self").textValue());
+        assertEquals(1, result.get("data").get("attributes").size());
+        assertEquals(
+                "123e4567-e89b-12d3-a456-426655440000",
+                result.get("data").get("relationships").get("owner").get("data").get("id").textValue());
+        assertEquals(
+                "uuid",
+                result.get("data").get("relationships").get("owner").get("data").get("type").textValue());
+    }
+
+    @Test
+    public void testCyclicResourceSerialization() {
+        CyclicObject first = new CyclicObject("first");
+        CyclicObject second = new CyclicObject("second");
+        first.partner = second;
+        second.partner = first;
+
+        JsonNode result = mapper.valueToTree(first);
+
+        System.out.println(result);
+        JsonNode partnerDocument = result.get("data").get("attributes").get("partner");
+        assertEquals("second", partnerDocument.get("data").get("id").textValue());
+        JsonNode cyclicDocument = partnerDocument.get("data").get("attributes").get("partner");
+        assertEquals("first", cyclicDocument.get("data").get("id").textValue());
+        assertEquals("cyclic", cyclicDocument.get("data").get("type").textValue());
+        assertFalse(cyclicDocument.get("data").has("attributes"));
+        assertTrue(cyclicDocument.get("meta").get("truncated").booleanValue());
+    }
+
+    @Test
+    public void testSharedResourceIsWrittenOnce() {
+        GraphObject shared = new GraphObject("shared");
+        GraphObject root = new GraphObject("root");
+        root.left = new GraphObject("left");
+        root.right = new GraphObject("right");
+        root.left.left = shared;
+        root.right.left = shared;
+
+        JsonNode result = mapper.valueToTree(root);
+
+        JsonNode attributes = result.get("data").get("attributes");
+        JsonNode first = attributes.get("left").get("data").get("attributes").get("left");
+        assertTrue(first.get("data").has("attributes"));
+        JsonNode second = attributes.get("right").get("data").get("attributes").get("left");
+        assertEquals("shared", second.get("data").get("id").textValue());
+        assertFalse(second.get("data").has("attributes"));
+        assertTrue(second.get("meta").get("truncated").booleanValue());
+    }
+
+    @Test
+    public void testStackedDiamondsAreWalkedInLinearTime() throws IOException {
+        GraphObject root = new GraphObject("0");
+        GraphObject top = root;
+        for(int i = 1; i <= 40; i++) {
+            GraphObject bottom = new GraphObject(String.valueOf(i));
+            top.left = new GraphObject(i + "l");
+            top.right = new GraphObject(i + "r");
+            top.left.left = bottom;
+            top.right.left = bottom;
+            top = bottom;
+        }
+
+        String result = mapper
+                .writer()
+                .withAttribute(TraversalLimits.class, new TraversalLimits(200, 10_000))
+                .writeValueAsString(root);
+
+        assertTrue(result.contains("\"id\":\"40\""));
+    }
+
+    @Test
+    public void testNestedResourceFanOutLimit() throws IOException {
+        GraphObject root = new GraphObject("root");
+        root.children.addAll(Arrays.asList(new GraphObject("1"), new GraphObject("2"), new GraphObject("3")));
+
+        JsonNode result = mapper.readTree(mapper
+                .writer()
+                .withAttribute(TraversalLimits.class, new TraversalLimits(4, 2))
+                .writeValueAsString(root));
+
+        JsonNode children = result.get("data").get("attributes").get("children");
+        assertTrue(children.get(1).get("data").has("attributes"));
+        assertEquals("3", children.get(2).get("data").get("id").textValue());
+        assertFalse(children.get(2).get("data").has("attributes"));
+        assertTrue(children.get(2).get("meta").get("truncated").booleanValue());
+    }
+
+    @Test
+    public void testRelationshipFanOutLimit() throws IOException {
+        List<Object> related = new ArrayList<>(Arrays.asList(new SimplePojo("1"), new SimplePojo("2"), new SimplePojo("3")));
+        related.add(related);
+
+        JsonNode result = mapper.readTree(mapper
+                .writer()
+                .withAttribute(TraversalLimits.class, new TraversalLimits(4, 2))
+                .writeValueAsString(new RelationshipObject(related)));
+
+        System.out.println(result);
+        JsonNode dangerous = result.get("data").get("relationships").get("dangerous");
+        assertEquals(3, dangerous.get("data").size());
+        assertEquals("2", dangerous.get("data").get(1).get("id").textValue());
+        assertEquals(0, dangerous.get("data").get(2).size());
+        assertEquals(5, dangerous.get("meta").get("omitted").asInt());
+    }
+
+    @Test
+    public void testPagedRelationship() {
+        JsonNode relationships = new ObjectMapper().valueToTree(new PagedObject()).get("data").get("relationships");
+
+        JsonNode items = relationships.get("items");
+        assertEquals(2, items.get("data").size());
+        assertEquals("b", items.get("data").get(1).get("id").textValue());
+        assertEquals(3, items.get("meta").get("count").intValue());
+        assertFalse(items.get("meta").has("truncated"));
+        assertEquals("paged/1/items", items.get("links").get("related").textValue());
+        assertEquals("paged/1/relationships/items?page%5Boffset%5D=2&page%5Blimit%5D=2", items.get("links").get("next").textValue());
+
+        JsonNode few = relationships.get("few");
+        assertEquals(2, few.get("data").size());
+        assertFalse(few.has("links"));
+        assertFalse(few.has("meta"));
+    }
+
+    @Test
+    public void testPagedRelationshipTruncatedByFanOut() throws IOException {
+        JsonNode result = mapper.readTree(mapper
+                .writer()
+                .withAttribute(TraversalLimits.class, new TraversalLimits(4, 1))
+                .writeValueAsString(new PagedObject()));
+
+        JsonNode items = result.get("data").get("relationships").get("items");
+        assertEquals(1, items.get("data").size());
+        assertEquals("paged/1/relationships/items?page%5Boffset%5D=1&page%5Blimit%5D=2", items.get("links").get("next").textValue());
+        assertEquals(3, items.get("meta").get("count").intValue());
+        assertTrue(items.get("meta").get("truncated").booleanValue());
+        assertEquals(1, items.get("meta").get("omitted").intValue());
+    }
 }
@@ -0,0 +1,62 @@
+package util;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.core.JsonGenerator;
+import exceptions.JsonApiSerializationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+public class AssertTest {
+
+    @Test
+    public void testCodecRegisteredAfterFirstUse() {
+        //a local class, so the annotation processor does not index it and no other test trusts or warms it up
+        @JsonApiResource(type = "shipment")
+        class Shipment {
+            @JsonApiId
+            TrackingNumber number = new TrackingNumber("1Z");
+        }
+        Assertions.assertThrows(JsonApiSerializationException.class,
+                () -> Assert.assertHasValidJsonApiAnnotations(Shipment.class));
+
+        IdCodecs.register(TrackingNumber.class, new IdCodec<TrackingNumber>() {
+            @Override
+            public void write(TrackingNumber id, JsonGenerator gen) throws IOException {
+                gen.writeString(format(id));
+            }
+
+            @Override
+            public String format(TrackingNumber id) {
+                return id.value;
+            }
+
+            @Override
+            public TrackingNumber parse(String id) {
+                return new TrackingNumber(id);
+            }
+        });
+
+        Assert.assertHasValidJsonApiAnnotations(Shipment.class);
+    }
+
+    @Test
+    public void testReportOfInvalidClassIsBuiltOnce() {
+        JsonApiSerializationException first = Assertions.assertThrows(JsonApiSerializationException.class,
+                () -> Assert.assertHasValidJsonApiAnnotations(AssertTest.class));
+        JsonApiSerializationException second = Assertions.assertThrows(JsonApiSerializationException.class,
+                () -> Assert.assertHasValidJsonApiAnnotations(AssertTest.class));
+
+        Assertions.assertSame(first.getMessage(), second.getMessage());
+    }
+
+    static class TrackingNumber {
+        final String value;
+
+        TrackingNumber(String value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompactNodeFactoryTest {
+    private static final ObjectMapper mapper = new ObjectMapper().setNodeFactory(CompactNodeFactory.get());
+
+    @Test
+    public void testTreesEqualHashMapTrees() throws Exception {
+        String json = "{\"data\":[{\"type\":\"a\",\"id\":\"1\",\"attributes\":{\"x\":1,\"y\":[true,null]}},{\"type\":\"a\",\"id\":\"2\"}]}";
+
+        JsonNode compact = mapper.readTree(json);
+
+        assertEquals(new ObjectMapper().readTree(json), compact);
+        assertEquals(new ObjectMapper().readTree(json), new ObjectMapper().readTree(mapper.writeValueAsString(compact)));
+    }
+
+    @Test
+    public void testObjectsWithSameFieldsShareTheirShape() {
+        CompactFieldMap first = new CompactFieldMap();
+        CompactFieldMap second = new CompactFieldMap();
+        for(CompactFieldMap fields: new CompactFieldMap[]{first, second}) {
+            fields.put("type", TextNode.valueOf("a"));
+            fields.put("id", TextNode.valueOf("1"));
+        }
+
+        assertSame(first.entrySet().iterator().next().getKey(), second.entrySet().iterator().next().getKey());
+        assertSame(CompactFieldMap.Shape.EMPTY.with("type").with("id"), CompactFieldMap.Shape.EMPTY.with("type").with("id"));
+        assertTrue(CompactFieldMap.Shape.EMPTY.with("type").isShared());
+    }
+
+    @Test
+    public void testShapesAreSharedAgainOnceDynamicShapesAreCollected() {
+        CompactFieldMap.Shape root = CompactFieldMap.Shape.root(2);
+        assertTrue(root.with("first").isShared());
+        assertTrue(root.with("second").isShared());
+        assertFalse(root.with("late").isShared());
+
+        //what the garbage collector does once the shape is unreachable
+        root.transitions.get("first").enqueue();
+
+        assertTrue(root.with("late").isShared());
+        assertFalse(root.transitions.containsKey("first"));
+    }
+
+    @Test
+    public void testMutations() {
+        ObjectNode node = CompactNodeFactory.get().objectNode();
+        node.put("a", 1);
+        node.put("b", 2);
+        node.put("c", 3);
+        node.put("b", 4);
+        assertEquals("{\"a\":1,\"b\":4,\"c\":3}", node.toString());
+
+        node.remove("a");
+        assertEquals("{\"b\":4,\"c\":3}", node.toString());
+        assertNull(node.get("a"));
+
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        fields.next().setValue(TextNode.valueOf("x"));
+        fields.next();
+        fields.remove();
+        assertFalse(fields.hasNext());
+        assertEquals("{\"b\":\"x\"}", node.toString());
+    }
+
+    @Test
+    public void testObjectsWithManyFieldsOverflow() {
+        ObjectNode node = CompactNodeFactory.get().objectNode();
+        List<String> names = new ArrayList<>();
+        for(int i = 0; i < CompactFieldMap.MAX_COMPACT_FIELDS * 2; i++) {
+            node.put("field" + i, i);
+            names.add("field" + i);
+        }
+
+        List<String> fieldNames = new ArrayList<>();
+        node.fieldNames().forEachRemaining(fieldNames::add);
+        assertEquals(names, fieldNames);
+        assertEquals(7, node.get("field7").intValue());
+        assertEquals(30, node.get("field30").intValue());
+    }
+}
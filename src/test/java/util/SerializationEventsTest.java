@@ -0,0 +1,73 @@
+package util;
+
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import models.SimplePojo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SerializationEventsTest {
+
+    @Test
+    public void testDocumentEvent() throws IOException {
+        Path file = Files.createTempFile("jsonapi", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("jsonapi.Document").withThreshold(Duration.ZERO);
+            recording.start();
+            new ObjectMapper().writeValueAsString(new SimplePojo("1"));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("jsonapi.Document")
+                    && "simple".equals(event.getString("type")) && event.getInt("count") == 1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFailedDocumentEvent() throws IOException {
+        @JsonApiResource(type = "failing")
+        class Failing {
+            @JsonApiId
+            String id = "1";
+
+            public String getTitle() {
+                throw new IllegalStateException("Title is not available");
+            }
+        }
+        Path file = Files.createTempFile("jsonapi", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("jsonapi.Document").withThreshold(Duration.ZERO);
+            recording.start();
+            assertThrows(IOException.class, () -> new ObjectMapper().writeValueAsString(new Failing()));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("jsonapi.Document")
+                    && "failing".equals(event.getString("type"))));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testNothingRecordedWithoutRecording() {
+        assertNull(SerializationEvents.get().begin(SerializationEvents.Kind.DOCUMENT));
+    }
+}
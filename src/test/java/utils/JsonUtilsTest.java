@@ -1,11 +1,23 @@
 package utils;
 
+import annotations.JsonApiId;
+import annotations.JsonApiResource;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import models.TypedIdObject;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import util.IdCodec;
+import util.IdCodecs;
+
+import java.io.IOException;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static util.JsonUtils.createNodeIfNotExisting;
+import static util.JsonUtils.getJsonApiId;
+import static util.JsonUtils.parseJsonApiId;
 
 public class JsonUtilsTest {
     ObjectMapper mapper = new ObjectMapper();
@@ -25,4 +37,52 @@ public class JsonUtilsTest {
         assertEquals("val", result.get("existing").textValue());
         assertEquals("stringVal", result.get("withValue").textValue());
     }
+
+    @Test
+    public void testParseJsonApiId() {
+        assertEquals(42L, parseJsonApiId(TypedIdObject.class, "42"));
+        assertEquals(
+                UUID.fromString("123e4567-e89b-12d3-a456-426655440000"),
+                parseJsonApiId(TypedIdObject.UuidObject.class, "123e4567-e89b-12d3-a456-426655440000"));
+    }
+
+    @Test
+    public void testCustomIdCodec() throws Exception {
+        assertEquals("ON-7", getJsonApiId(new Order()));
+        assertEquals(7, ((OrderNumber) parseJsonApiId(Order.class, "ON-7")).value);
+        assertEquals("ON-7", mapper.valueToTree(new Order()).get("data").get("id").textValue());
+    }
+
+    static class OrderNumber {
+        final int value;
+
+        OrderNumber(int value) {
+            this.value = value;
+        }
+    }
+
+    @JsonApiResource(type = "order")
+    static class Order {
+        static {
+            IdCodecs.register(OrderNumber.class, new IdCodec<OrderNumber>() {
+                @Override
+                public void write(OrderNumber id, JsonGenerator gen) throws IOException {
+                    gen.writeString(format(id));
+                }
+
+                @Override
+                public String format(OrderNumber id) {
+                    return "ON-" + id.value;
+                }
+
+                @Override
+                public OrderNumber parse(String id) {
+                    return new OrderNumber(Integer.parseInt(id.substring(3)));
+                }
+            });
+        }
+
+        @JsonApiId
+        OrderNumber number = new OrderNumber(7);
+    }
 }